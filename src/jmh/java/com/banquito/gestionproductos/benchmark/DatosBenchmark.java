@@ -0,0 +1,50 @@
+package com.banquito.gestionproductos.benchmark;
+
+import com.banquito.gestionproductos.GestionProductosApplication;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+
+/**
+ * Datos sintéticos compartidos por los benchmarks.
+ */
+final class DatosBenchmark {
+
+    private static final String[] NOMBRES = {"Leche", "Queso", "Yogur", "Pan", "Arroz", "Aceite", "Azúcar", "Café"};
+
+    private DatosBenchmark() {
+    }
+
+    // Contexto completo con el perfil "test" (H2 en memoria); los argumentos sobrescriben propiedades
+    static ConfigurableApplicationContext iniciarContexto(String... argumentos) {
+        SpringApplication aplicacion = new SpringApplication(GestionProductosApplication.class);
+        aplicacion.setAdditionalProfiles("test");
+        String[] todos = new String[argumentos.length + 2];
+        todos[0] = "--spring.main.banner-mode=off";
+        todos[1] = "--logging.level.root=WARN";
+        System.arraycopy(argumentos, 0, todos, 2, argumentos.length);
+        return aplicacion.run(todos);
+    }
+
+    static Producto producto(int i, CategoriaProducto categoria) {
+        Producto producto = new Producto(nombre(i), "Producto de prueba número " + i,
+                BigDecimal.valueOf(100 + i % 9000, 2), i % 500, i % 7 == 0 ? "Inactivo" : "Activo", categoria);
+        producto.setIdProducto(i);
+        producto.setCostoCompra(BigDecimal.valueOf(80 + i % 7000, 2));
+        return producto;
+    }
+
+    static String nombre(int i) {
+        return NOMBRES[i % NOMBRES.length] + " " + i;
+    }
+
+    static String filaCsv(int i, int idCategoria) {
+        Producto producto = producto(i, null);
+        return producto.getNombreProducto() + "," + producto.getDescripcion() + "," + producto.getPrecioVenta() + "," +
+               producto.getCostoCompra() + "," + producto.getStockActual() + "," + producto.getEstadoProducto() + "," +
+               idCategoria;
+    }
+}
@@ -0,0 +1,100 @@
+package com.banquito.gestionproductos.benchmark;
+
+import com.banquito.gestionproductos.dto.PaginaCursor;
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tamaño y tiempo de serialización de una respuesta de 10 000 productos en JSON, CBOR y Smile, sin
+ * comprimir y con gzip (server.compression). El tamaño de cada variante se imprime al terminar la
+ * iteración; el tiempo de serialización es la métrica del benchmark.
+ *
+ * mvn -Pbenchmark verify -Djmh.filtro=FormatosRespuestaBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FormatosRespuestaBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String formato;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    @Param({"10000"})
+    private int cantidad;
+
+    private ObjectMapper mapper;
+    private PaginaCursor<ProductoResumen> pagina;
+    private int tamano;
+
+    @Setup
+    public void preparar() {
+        mapper = switch (formato) {
+            case "cbor" -> CBORMapper.builder().findAndAddModules().build();
+            case "smile" -> SmileMapper.builder().findAndAddModules().build();
+            default -> JsonMapper.builder().findAndAddModules().build();
+        };
+
+        List<ProductoResumen> resumenes = new ArrayList<>(cantidad);
+        for (int i = 1; i <= cantidad; i++) {
+            CategoriaProducto categoria = new CategoriaProducto("Categoria " + (i % 20), "Descripción de la categoría");
+            categoria.setIdCategoria(i % 20);
+            Producto producto = DatosBenchmark.producto(i, categoria);
+            resumenes.add(new ProductoResumen(producto.getIdProducto(), producto.getNombreProducto(),
+                    producto.getDescripcion(), producto.getPrecioVenta(), producto.getCostoCompra(),
+                    producto.getStockActual(), producto.getEstadoProducto(), categoria.getIdCategoria(),
+                    categoria.getNombreCategoria(), 0L));
+        }
+        pagina = new PaginaCursor<>(resumenes, cantidad, cantidad, true);
+    }
+
+    @Benchmark
+    public byte[] serializar() throws Exception {
+        byte[] cuerpo;
+        if (gzip) {
+            ByteArrayOutputStream salida = new ByteArrayOutputStream(64 * 1024);
+            try (GZIPOutputStream comprimido = new GZIPOutputStream(salida)) {
+                mapper.writeValue(comprimido, pagina);
+            }
+            cuerpo = salida.toByteArray();
+        } else {
+            cuerpo = mapper.writeValueAsBytes(pagina);
+        }
+        tamano = cuerpo.length;
+        return cuerpo;
+    }
+
+    @TearDown(Level.Iteration)
+    public void informarTamano() {
+        System.out.printf("%n%s%s, %d productos: %d bytes%n", formato, gzip ? "+gzip" : "", cantidad, tamano);
+    }
+}
@@ -0,0 +1,135 @@
+package com.banquito.gestionproductos.benchmark;
+
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import com.banquito.gestionproductos.service.CategoriaProductoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Una página de GET /productos/rango-precios por cada combinación de filtros, contra la base
+ * embebida del perfil "test" (H2). Cada página empieza en un cursor (precioVenta, idProducto) al
+ * azar dentro de un rango de 10 unidades de precio.
+ *
+ * El catálogo se inserta por JDBC y no con el importador: las consultas no usan los índices en
+ * memoria, y el de trigramas de un millón de productos no cabe junto a la base en el heap del fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RangoPreciosBenchmark {
+
+    private static final int CATEGORIAS = 20;
+    private static final int TAMANIO_PAGINA = 50;
+    private static final int TAMANIO_LOTE = 1000;
+    private static final String INSERTAR = "INSERT INTO productos (id_producto, nombre_producto, descripcion, " +
+            "precio_venta, costo_compra, stock_actual, estado_producto, id_categoria, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    @Param({"100000", "1000000"})
+    private int cantidad;
+
+    private ConfigurableApplicationContext contexto;
+    private ProductoRepository productoRepository;
+    private final List<Integer> idsCategorias = new ArrayList<>();
+
+    @Setup
+    public void iniciar() {
+        contexto = DatosBenchmark.iniciarContexto();
+        productoRepository = contexto.getBean(ProductoRepository.class);
+        sembrar(contexto.getBean(CategoriaProductoService.class), contexto.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<ProductoResumen> sinFiltros() {
+        BigDecimal minimo = precioMinimoAleatorio();
+        return productoRepository.findByRangoPreciosDesde(precioCursor(minimo), minimo.add(BigDecimal.TEN),
+                idAleatorio(), Limit.of(TAMANIO_PAGINA));
+    }
+
+    @Benchmark
+    public List<ProductoResumen> estado() {
+        BigDecimal minimo = precioMinimoAleatorio();
+        return productoRepository.findByRangoPreciosYEstadoDesde(precioCursor(minimo), minimo.add(BigDecimal.TEN),
+                "Activo", idAleatorio(), Limit.of(TAMANIO_PAGINA));
+    }
+
+    @Benchmark
+    public List<ProductoResumen> categoria() {
+        BigDecimal minimo = precioMinimoAleatorio();
+        return productoRepository.findByRangoPreciosYCategoriaDesde(precioCursor(minimo), minimo.add(BigDecimal.TEN),
+                categoriaAleatoria(), idAleatorio(), Limit.of(TAMANIO_PAGINA));
+    }
+
+    @Benchmark
+    public List<ProductoResumen> estadoYCategoria() {
+        BigDecimal minimo = precioMinimoAleatorio();
+        return productoRepository.findByRangoPreciosEstadoYCategoriaDesde(precioCursor(minimo), minimo.add(BigDecimal.TEN),
+                "Activo", categoriaAleatoria(), idAleatorio(), Limit.of(TAMANIO_PAGINA));
+    }
+
+    private int idAleatorio() {
+        return ThreadLocalRandom.current().nextInt(1, cantidad + 1);
+    }
+
+    // Los precios sembrados van de 1.00 a 90.99
+    private BigDecimal precioMinimoAleatorio() {
+        return BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(1, 80));
+    }
+
+    private BigDecimal precioCursor(BigDecimal minimo) {
+        return minimo.add(BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(0, 1000), 2));
+    }
+
+    private int categoriaAleatoria() {
+        return idsCategorias.get(ThreadLocalRandom.current().nextInt(idsCategorias.size()));
+    }
+
+    private void sembrar(CategoriaProductoService categorias, JdbcTemplate jdbcTemplate) {
+        for (int i = 0; i < CATEGORIAS; i++) {
+            idsCategorias.add(categorias.crearCategoria(new CategoriaProducto("Categoria " + i, null)).getIdCategoria());
+        }
+
+        List<Object[]> lote = new ArrayList<>(TAMANIO_LOTE);
+        for (int i = 1; i <= cantidad; i++) {
+            Producto producto = DatosBenchmark.producto(i, null);
+            lote.add(new Object[]{i, producto.getNombreProducto(), producto.getDescripcion(), producto.getPrecioVenta(),
+                    producto.getCostoCompra(), producto.getStockActual(), producto.getEstadoProducto(),
+                    idsCategorias.get(i % CATEGORIAS)});
+            if (lote.size() == TAMANIO_LOTE || i == cantidad) {
+                jdbcTemplate.batchUpdate(INSERTAR, lote);
+                lote.clear();
+            }
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+}
@@ -0,0 +1,147 @@
+package com.banquito.gestionproductos.benchmark;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import com.banquito.gestionproductos.service.CategoriaProductoService;
+import com.banquito.gestionproductos.service.ImportacionProductoService;
+import com.banquito.gestionproductos.service.IndiceBusquedaProductos;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas del repositorio contra la base embebida del perfil "test" (H2), con un catálogo
+ * sembrado por el importador masivo. Compara la ruta con entidades (y la carga perezosa de la
+ * categoría durante la serialización) con las proyecciones ProductoResumen, y la búsqueda por
+ * LIKE con el índice de trigramas. Las consultas por rango de precios están en RangoPreciosBenchmark.
+ *
+ * El tamaño del catálogo se cambia con -p cantidad=1000000.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RepositorioProductosBenchmark {
+
+    private static final int CATEGORIAS = 20;
+    private static final int TAMANIO_PAGINA = 50;
+
+    @Param({"100000"})
+    private int cantidad;
+
+    private ConfigurableApplicationContext contexto;
+    private ProductoRepository productoRepository;
+    private IndiceBusquedaProductos indiceBusquedaProductos;
+    private EntityManager entityManager;
+    private TransactionTemplate lectura;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void iniciar() throws Exception {
+        contexto = DatosBenchmark.iniciarContexto();
+
+        productoRepository = contexto.getBean(ProductoRepository.class);
+        indiceBusquedaProductos = contexto.getBean(IndiceBusquedaProductos.class);
+        objectMapper = contexto.getBean(ObjectMapper.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(contexto.getBean(EntityManagerFactory.class));
+        lectura = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+        lectura.setReadOnly(true);
+
+        sembrar(contexto.getBean(CategoriaProductoService.class), contexto.getBean(ImportacionProductoService.class));
+    }
+
+    @TearDown
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public byte[] porIdResumen() throws Exception {
+        return objectMapper.writeValueAsBytes(productoRepository.findResumenById(idAleatorio()).orElseThrow());
+    }
+
+    @Benchmark
+    public byte[] porIdEntidad() {
+        return lectura.execute(estado -> serializar(productoRepository.findById(idAleatorio()).orElseThrow()));
+    }
+
+    @Benchmark
+    public byte[] paginaResumenes() throws Exception {
+        return objectMapper.writeValueAsBytes(productoRepository.findPaginaDesde(cursorAleatorio(), Limit.of(TAMANIO_PAGINA)));
+    }
+
+    @Benchmark
+    public byte[] paginaEntidades() {
+        return lectura.execute(estado -> serializar(entityManager
+                .createQuery("SELECT p FROM Producto p WHERE p.idProducto > :cursor ORDER BY p.idProducto", Producto.class)
+                .setParameter("cursor", cursorAleatorio())
+                .setMaxResults(TAMANIO_PAGINA)
+                .getResultList()));
+    }
+
+    @Benchmark
+    public List<Producto> buscarConLike() {
+        return productoRepository.findByNombreProductoContaining("queso " + ThreadLocalRandom.current().nextInt(1, 100));
+    }
+
+    @Benchmark
+    public List<Integer> buscarEnIndice() {
+        return indiceBusquedaProductos.buscar("queso " + ThreadLocalRandom.current().nextInt(1, 100), TAMANIO_PAGINA);
+    }
+
+    private byte[] serializar(Object valor) {
+        try {
+            return objectMapper.writeValueAsBytes(valor);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int idAleatorio() {
+        return ThreadLocalRandom.current().nextInt(1, cantidad + 1);
+    }
+
+    private int cursorAleatorio() {
+        return ThreadLocalRandom.current().nextInt(0, cantidad - TAMANIO_PAGINA);
+    }
+
+    private void sembrar(CategoriaProductoService categorias, ImportacionProductoService importacion) throws Exception {
+        List<Integer> idsCategorias = new ArrayList<>();
+        for (int i = 0; i < CATEGORIAS; i++) {
+            idsCategorias.add(categorias.crearCategoria(new CategoriaProducto("Categoria " + i, null)).getIdCategoria());
+        }
+
+        StringBuilder csv = new StringBuilder("nombreProducto,descripcion,precioVenta,costoCompra,stockActual,estadoProducto,idCategoria\n");
+        for (int i = 1; i <= cantidad; i++) {
+            csv.append(DatosBenchmark.filaCsv(i, idsCategorias.get(i % CATEGORIAS))).append('\n');
+        }
+        importacion.importarCsv(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+}
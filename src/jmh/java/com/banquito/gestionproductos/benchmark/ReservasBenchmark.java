@@ -0,0 +1,74 @@
+package com.banquito.gestionproductos.benchmark;
+
+import com.banquito.gestionproductos.dto.LineaMovimientoStock;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.service.CategoriaProductoService;
+import com.banquito.gestionproductos.service.MotorReservas;
+import com.banquito.gestionproductos.service.ProductoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Apartar y devolver stock de un producto: motor de reservas en memoria frente al camino anterior
+ * de disminuirStock seguido de aumentarStock contra la base.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReservasBenchmark {
+
+    private ConfigurableApplicationContext contexto;
+    private MotorReservas motorReservas;
+    private ProductoService productoService;
+    private Integer idProducto;
+    private List<LineaMovimientoStock> lineas;
+
+    @Setup
+    public void iniciar() {
+        contexto = DatosBenchmark.iniciarContexto();
+        motorReservas = contexto.getBean(MotorReservas.class);
+        productoService = contexto.getBean(ProductoService.class);
+
+        CategoriaProducto categoria = contexto.getBean(CategoriaProductoService.class)
+                .crearCategoria(new CategoriaProducto("Carrito", null));
+        Producto producto = new Producto("Producto de carrito", null, new BigDecimal("5.00"), 1_000_000, "Activo", categoria);
+        idProducto = productoService.crearProducto(producto).getIdProducto();
+        lineas = List.of(new LineaMovimientoStock(idProducto, 1));
+    }
+
+    @TearDown
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public void reservarYLiberar() {
+        motorReservas.liberar(motorReservas.reservar(lineas).idReserva());
+    }
+
+    @Benchmark
+    public Object disminuirYAumentarEnBase() {
+        productoService.disminuirStock(idProducto, 1);
+        return productoService.aumentarStock(idProducto, 1, null);
+    }
+}
@@ -0,0 +1,74 @@
+package com.banquito.gestionproductos.benchmark;
+
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización Jackson de listas de productos: entidad Producto (con su categoría) frente a la
+ * proyección ProductoResumen que devuelven los GET. Con -prof gc se comparan también las asignaciones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializacionProductosBenchmark {
+
+    @Param({"50", "1000", "10000"})
+    private int cantidad;
+
+    private ObjectMapper objectMapper;
+    private List<Producto> entidades;
+    private List<ProductoResumen> resumenes;
+
+    @Setup
+    public void preparar() {
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+                .build();
+
+        entidades = new ArrayList<>(cantidad);
+        resumenes = new ArrayList<>(cantidad);
+        for (int i = 1; i <= cantidad; i++) {
+            CategoriaProducto categoria = new CategoriaProducto("Categoria " + (i % 20), "Descripción de la categoría");
+            categoria.setIdCategoria(i % 20);
+            Producto producto = DatosBenchmark.producto(i, categoria);
+            entidades.add(producto);
+            resumenes.add(new ProductoResumen(producto.getIdProducto(), producto.getNombreProducto(),
+                    producto.getDescripcion(), producto.getPrecioVenta(), producto.getCostoCompra(),
+                    producto.getStockActual(), producto.getEstadoProducto(), categoria.getIdCategoria(),
+                    categoria.getNombreCategoria(), 0L));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializarEntidades() throws Exception {
+        return objectMapper.writeValueAsBytes(entidades);
+    }
+
+    @Benchmark
+    public byte[] serializarResumenes() throws Exception {
+        return objectMapper.writeValueAsBytes(resumenes);
+    }
+}
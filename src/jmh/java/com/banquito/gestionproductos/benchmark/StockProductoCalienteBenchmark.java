@@ -0,0 +1,77 @@
+package com.banquito.gestionproductos.benchmark;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import com.banquito.gestionproductos.service.CoalescedorStock;
+import com.banquito.gestionproductos.service.ProductoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escrituras concurrentes sobre un único producto: actualización en sitio de stock_actual, la misma
+ * actualización pasando por el agrupador (group commit) y el libro de movimientos de solo
+ * inserción. Cambiar el número de hilos con -t.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StockProductoCalienteBenchmark {
+
+    private ConfigurableApplicationContext contexto;
+    private ProductoService productoService;
+    private CoalescedorStock coalescedorStock;
+    private Integer idProducto;
+
+    @Setup
+    public void iniciar() {
+        // Compactación frecuente para que el benchmark incluya su costo
+        contexto = DatosBenchmark.iniciarContexto("--productos.stock.compactacion-ms=1000",
+                "--productos.stock.coalescencia.habilitada=true");
+        productoService = contexto.getBean(ProductoService.class);
+        coalescedorStock = contexto.getBean(CoalescedorStock.class);
+
+        CategoriaProducto categoria = contexto.getBean(CategoriaProductoRepository.class).save(new CategoriaProducto("Ofertas", null));
+        Producto producto = new Producto("Producto en oferta", null, new BigDecimal("9.99"), Integer.MAX_VALUE / 2, "Activo", categoria);
+        idProducto = contexto.getBean(ProductoRepository.class).save(producto).getIdProducto();
+    }
+
+    @TearDown
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Object actualizacionEnSitio() {
+        return productoService.disminuirStock(idProducto, 1);
+    }
+
+    @Benchmark
+    public Object actualizacionCoalescida() {
+        return coalescedorStock.disminuirStock(idProducto, 1);
+    }
+
+    @Benchmark
+    public Object libroMovimientos() {
+        return productoService.registrarMovimientoStock(idProducto, -1);
+    }
+}
@@ -0,0 +1,50 @@
+package com.banquito.gestionproductos.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reglas de negocio de ProductoService que se ejecutan en cada movimiento de stock:
+ * el margen de 1.25 de aumentarStock y la validación de estado de cambiarEstadoProducto.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReglasStockBenchmark {
+
+    @Param({"Activo", "Agotado", "Descontinuado"})
+    private String estado;
+
+    private final BigDecimal precioCompra = new BigDecimal("12.37");
+    private final BigDecimal margen = new BigDecimal("1.25");
+
+    @Benchmark
+    public BigDecimal calcularPrecioVenta() {
+        return ProductoService.calcularPrecioVenta(precioCompra, margen);
+    }
+
+    @Benchmark
+    public boolean esEstadoValido() {
+        return ProductoService.esEstadoValido(estado);
+    }
+
+    // Referencia: la validación original compilaba la expresión regular en cada llamada
+    @Benchmark
+    public boolean esEstadoValidoConStringMatches() {
+        return estado.matches("^(Activo|Inactivo|Agotado)$");
+    }
+}
@@ -0,0 +1,94 @@
+package com.banquito.gestionproductos.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Origen de conexiones de solo lectura: reparte por turnos (round-robin) entre las réplicas. Una réplica
+ * que no entrega conexión se salta durante el tiempo de reintento; si ninguna está disponible, o el
+ * cliente tiene una escritura reciente (ver {@link FiltroLecturaPropia}), la conexión sale del primario.
+ */
+public class DataSourceReplicas extends AbstractDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSourceReplicas.class);
+
+    private static final ThreadLocal<Boolean> LECTURA_EN_PRIMARIO = new ThreadLocal<>();
+
+    private final DataSource primario;
+    private final List<Replica> replicas;
+    private final long reintentoMillis;
+    private final AtomicInteger turno = new AtomicInteger();
+
+    public DataSourceReplicas(DataSource primario, List<HikariDataSource> replicas, long reintentoMillis) {
+        this.primario = primario;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.reintentoMillis = reintentoMillis;
+    }
+
+    public static void leerDelPrimario(boolean enPrimario) {
+        if (enPrimario) {
+            LECTURA_EN_PRIMARIO.set(Boolean.TRUE);
+        } else {
+            LECTURA_EN_PRIMARIO.remove();
+        }
+    }
+
+    // Cliente dentro de su ventana de lectura propia: sus lecturas van al primario y no deben pasar por la caché
+    public static boolean lecturaEnPrimario() {
+        return Boolean.TRUE.equals(LECTURA_EN_PRIMARIO.get());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (lecturaEnPrimario() || replicas.isEmpty()) {
+            return primario.getConnection();
+        }
+
+        int inicio = Math.floorMod(turno.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((inicio + i) % replicas.size());
+            long ahora = System.currentTimeMillis();
+            if (replica.caidaHasta > ahora) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.caidaHasta = ahora + reintentoMillis;
+                log.warn("Réplica {} no disponible, se reintentará en {} ms: {}",
+                        replica.dataSource.getJdbcUrl(), reintentoMillis, e.getMessage());
+            }
+        }
+        return primario.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Las réplicas usan las credenciales configuradas; con otras credenciales se lee del primario
+        return primario.getConnection(username, password);
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource dataSource;
+        private volatile long caidaHasta;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.banquito.gestionproductos.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Lectura de las propias escrituras: después de una modificación exitosa, las lecturas del mismo
+ * cliente van al primario durante la ventana configurada, para no ver una réplica que aún no recibió
+ * el cambio. El cliente se identifica con la cabecera X-Cliente-Id o, si no la envía, por su IP.
+ */
+public class FiltroLecturaPropia extends OncePerRequestFilter {
+
+    static final String CABECERA_CLIENTE = "X-Cliente-Id";
+
+    private final Cache<String, Boolean> escriturasRecientes;
+
+    public FiltroLecturaPropia(Duration ventana) {
+        this.escriturasRecientes = Caffeine.newBuilder()
+                .expireAfterWrite(ventana)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String cliente = identificarCliente(request);
+        DataSourceReplicas.leerDelPrimario(escriturasRecientes.getIfPresent(cliente) != null);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            DataSourceReplicas.leerDelPrimario(false);
+            if (esEscritura(request) && response.getStatus() < 400) {
+                escriturasRecientes.put(cliente, Boolean.TRUE);
+            }
+        }
+    }
+
+    private static String identificarCliente(HttpServletRequest request) {
+        String cliente = request.getHeader(CABECERA_CLIENTE);
+        return cliente != null && !cliente.isBlank() ? cliente : request.getRemoteAddr();
+    }
+
+    private static boolean esEscritura(HttpServletRequest request) {
+        String metodo = request.getMethod();
+        return !metodo.equals("GET") && !metodo.equals("HEAD") && !metodo.equals("OPTIONS");
+    }
+}
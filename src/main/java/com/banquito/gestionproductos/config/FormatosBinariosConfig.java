@@ -0,0 +1,32 @@
+package com.banquito.gestionproductos.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Formatos binarios para clientes móviles y procesos batch: con Accept: application/cbor o
+ * application/x-jackson-smile los GET responden en CBOR o Smile en lugar de JSON. JSON sigue siendo
+ * el formato por defecto cuando el Accept no pide otro.
+ *
+ * Los conversores se crean con el Jackson2ObjectMapperBuilder de Spring Boot para que apliquen la
+ * misma configuración spring.jackson.* que las respuestas JSON; Spring Boot los ubica en lugar de
+ * los conversores CBOR/Smile por defecto de Spring MVC, después del conversor JSON.
+ */
+@Configuration
+public class FormatosBinariosConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter conversorCbor(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter conversorSmile(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
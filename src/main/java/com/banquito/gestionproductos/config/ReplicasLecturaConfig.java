@@ -0,0 +1,95 @@
+package com.banquito.gestionproductos.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas de lectura. Las transacciones @Transactional(readOnly = true) toman su conexión de las
+ * réplicas y el resto del primario (spring.datasource.*).
+ *
+ * La conexión se pide de forma diferida (LazyConnectionDataSourceProxy): Hibernate marca la conexión
+ * como de solo lectura al iniciar la transacción y recién al ejecutar la primera sentencia se decide de
+ * qué DataSource sale, así no se abre una conexión al primario que luego no se usa.
+ */
+@Configuration
+@ConditionalOnProperty(name = "productos.replicas.habilitadas", havingValue = "true")
+public class ReplicasLecturaConfig {
+
+    @Value("${productos.replicas.urls}")
+    private List<String> urls;
+
+    @Value("${productos.replicas.usuario:${spring.datasource.username}}")
+    private String usuario;
+
+    @Value("${productos.replicas.clave:${spring.datasource.password:}}")
+    private String clave;
+
+    @Value("${productos.replicas.pool-maximo:10}")
+    private int poolMaximo;
+
+    @Value("${productos.replicas.connection-timeout:1s}")
+    private Duration tiempoConexion;
+
+    @Value("${productos.replicas.reintento:10s}")
+    private Duration reintento;
+
+    @Value("${productos.replicas.lectura-propia:0s}")
+    private Duration ventanaLecturaPropia;
+
+    // Fuera de la autoinyección: el único DataSource visible para JPA y JdbcTemplate es el enrutado
+    @Bean(autowireCandidate = false)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimario(DataSourceProperties propiedades) {
+        return propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(autowireCandidate = false, destroyMethod = "close")
+    public DataSourceReplicas dataSourceReplicas(DataSourceProperties propiedades) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(urls.get(i).trim());
+            replica.setDriverClassName(propiedades.determineDriverClassName());
+            replica.setUsername(usuario);
+            replica.setPassword(clave);
+            replica.setMaximumPoolSize(poolMaximo);
+            replica.setConnectionTimeout(tiempoConexion.toMillis());
+            replica.setReadOnly(true);
+            // Una réplica caída no impide el arranque: se usa el primario hasta que responda
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new DataSourceReplicas(dataSourcePrimario(propiedades), replicas, reintento.toMillis());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties propiedades) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(dataSourcePrimario(propiedades));
+        dataSource.setReadOnlyDataSource(dataSourceReplicas(propiedades));
+        return dataSource;
+    }
+
+    @Bean
+    public FilterRegistrationBean<FiltroLecturaPropia> filtroLecturaPropia() {
+        FilterRegistrationBean<FiltroLecturaPropia> registro = new FilterRegistrationBean<>(new FiltroLecturaPropia(ventanaLecturaPropia));
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+        registro.setEnabled(!ventanaLecturaPropia.isZero());
+        return registro;
+    }
+}
@@ -1,12 +1,17 @@
 package com.banquito.gestionproductos.controller;
 
 import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.exception.VersionNoCoincideException;
 import com.banquito.gestionproductos.service.CategoriaProductoService;
+import com.banquito.gestionproductos.service.EtiquetasCatalogo;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,11 +24,18 @@ public class CategoriaProductoController {
     @Autowired
     private CategoriaProductoService categoriaProductoService;
 
+    @Autowired
+    private EtiquetasCatalogo etiquetasCatalogo;
+
     @GetMapping
-    public ResponseEntity<List<CategoriaProducto>> obtenerTodasLasCategorias() {
+    public ResponseEntity<List<CategoriaProducto>> obtenerTodasLasCategorias(WebRequest request) {
         try {
+            String etag = etiquetasCatalogo.etagCategorias();
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
             List<CategoriaProducto> categorias = categoriaProductoService.obtenerTodasLasCategorias();
-            return ResponseEntity.ok(categorias);
+            return ResponseEntity.ok().eTag(etag).body(categorias);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -31,6 +43,21 @@ public class CategoriaProductoController {
 
 
 
+    @GetMapping("/buscar")
+    public ResponseEntity<List<CategoriaProducto>> buscarCategorias(@RequestParam String texto, WebRequest request) {
+        try {
+            String etag = etiquetasCatalogo.etagCategorias();
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            List<CategoriaProducto> categorias = categoriaProductoService.buscarCategorias(texto);
+            return ResponseEntity.ok().eTag(etag).body(categorias);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
     @PostMapping
     public ResponseEntity<?> crearCategoria(@Valid @RequestBody CategoriaProducto categoria) {
         try {
@@ -47,10 +74,17 @@ public class CategoriaProductoController {
 
     @PutMapping("/{id}")
     public ResponseEntity<?> actualizarCategoria(@PathVariable Integer id, 
-                                                @Valid @RequestBody CategoriaProducto categoria) {
+                                                @Valid @RequestBody CategoriaProducto categoria,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            CategoriaProducto categoriaActualizada = categoriaProductoService.actualizarCategoria(id, categoria);
-            return ResponseEntity.ok(categoriaActualizada);
+            CategoriaProducto categoriaActualizada = categoriaProductoService.actualizarCategoria(id, categoria,
+                    EtiquetasCatalogo.versionEsperada(ifMatch));
+            return ResponseEntity.ok().eTag(etiquetasCatalogo.etagCategoria(categoriaActualizada)).body(categoriaActualizada);
+        } catch (VersionNoCoincideException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                                .body("La categoría fue modificada por otra operación, vuelva a consultarla");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
@@ -1,14 +1,38 @@
 package com.banquito.gestionproductos.controller;
 
+import com.banquito.gestionproductos.dto.LineaMovimientoStock;
+import com.banquito.gestionproductos.dto.LoteProductos;
+import com.banquito.gestionproductos.dto.PaginaCursor;
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.dto.ResultadoActualizacionMasiva;
+import com.banquito.gestionproductos.dto.ResultadoImportacion;
+import com.banquito.gestionproductos.dto.StockProducto;
+import com.banquito.gestionproductos.entity.MovimientoStock;
 import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.exception.VersionNoCoincideException;
+import com.banquito.gestionproductos.service.ActualizacionMasivaProductoService;
+import com.banquito.gestionproductos.service.AlertasStockBajo;
+import com.banquito.gestionproductos.service.CoalescedorStock;
+import com.banquito.gestionproductos.service.EtiquetasCatalogo;
+import com.banquito.gestionproductos.service.FeedCambiosProductos;
+import com.banquito.gestionproductos.service.ImportacionProductoService;
 import com.banquito.gestionproductos.service.ProductoService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -21,12 +45,33 @@ public class ProductoController {
     @Autowired
     private ProductoService productoService;
 
+    @Autowired
+    private CoalescedorStock coalescedorStock;
+
+    @Autowired
+    private ImportacionProductoService importacionProductoService;
+
+    @Autowired
+    private ActualizacionMasivaProductoService actualizacionMasivaProductoService;
+
+    @Autowired
+    private AlertasStockBajo alertasStockBajo;
+
+    @Autowired
+    private EtiquetasCatalogo etiquetasCatalogo;
+
+    @Autowired
+    private FeedCambiosProductos feedCambiosProductos;
+
 
     @GetMapping("/{id}")
-    public ResponseEntity<Producto> obtenerProductoPorId(@PathVariable Integer id) {
+    public ResponseEntity<ProductoResumen> obtenerProductoPorId(@PathVariable Integer id) {
         try {
-            Optional<Producto> producto = productoService.obtenerProductoPorId(id);
-            return producto.map(ResponseEntity::ok)
+            // El resumen sale de la caché; si coincide con If-None-Match se responde 304 sin serializarlo
+            Optional<ProductoResumen> producto = productoService.obtenerProductoPorId(id);
+            return producto.map(p -> ResponseEntity.ok()
+                                    .eTag(etiquetasCatalogo.etagProducto(p.idProducto(), p.version(), p.idCategoria()))
+                                    .body(p))
                           .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -34,17 +79,48 @@ public class ProductoController {
     }
 
 
+    // Varios productos en una sola llamada: GET /productos/lote?ids=1,2,3 (máximo 100 ids)
+    @GetMapping("/lote")
+    public ResponseEntity<?> obtenerProductosPorIds(@RequestParam List<Integer> ids) {
+        try {
+            LoteProductos lote = productoService.obtenerProductosPorIds(ids);
+            return ResponseEntity.ok(lote);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
     @GetMapping
-    public ResponseEntity<List<Producto>> obtenerTodosLosProductos() {
+    public ResponseEntity<PaginaCursor<ProductoResumen>> obtenerTodosLosProductos(@RequestParam(required = false) Integer cursor,
+                                                                                  @RequestParam(required = false) Integer limite,
+                                                                                  WebRequest request) {
         try {
-            List<Producto> productos = productoService.obtenerTodosLosProductos();
-            return ResponseEntity.ok(productos);
+            // La etiqueta se toma antes de consultar: si el catálogo no cambió no se carga ni serializa nada
+            String etag = etiquetasCatalogo.etagProductos();
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            PaginaCursor<ProductoResumen> productos = productoService.obtenerTodosLosProductos(cursor, limite);
+            return ResponseEntity.ok().eTag(etag).body(productos);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
 
+    @GetMapping(value = "/exportar", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarCatalogo() {
+        StreamingResponseBody cuerpo = salida -> productoService.exportarCatalogo(salida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(cuerpo);
+    }
+
+
     @PostMapping
     public ResponseEntity<?> crearProducto(@Valid @RequestBody Producto producto) {
         try {
@@ -59,17 +135,127 @@ public class ProductoController {
     }
 
 
+    @PostMapping(value = "/importar", consumes = "text/csv")
+    public ResponseEntity<?> importarProductosCsv(InputStream entrada) {
+        try {
+            ResultadoImportacion resultado = importacionProductoService.importarCsv(entrada);
+            return ResponseEntity.ok(resultado);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
+    @PostMapping(value = "/importar", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importarProductosJson(InputStream entrada) {
+        try {
+            ResultadoImportacion resultado = importacionProductoService.importarJson(entrada);
+            return ResponseEntity.ok(resultado);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
     @PutMapping("/{id}/estado")
     public ResponseEntity<?> cambiarEstadoProducto(@PathVariable Integer id, 
-                                                  @RequestBody Map<String, Object> requestData) {
+                                                  @RequestBody Map<String, Object> requestData,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
             String nuevoEstado = (String) requestData.get("nuevoEstado");
             if (nuevoEstado == null || nuevoEstado.trim().isEmpty()) {
                 return ResponseEntity.badRequest().body("El campo 'nuevoEstado' es obligatorio");
             }
             
-            Producto producto = productoService.cambiarEstadoProducto(id, nuevoEstado);
-            return ResponseEntity.ok(producto);
+            Producto producto = productoService.cambiarEstadoProducto(id, nuevoEstado,
+                    EtiquetasCatalogo.versionEsperada(ifMatch));
+            return ResponseEntity.ok().eTag(etagProducto(producto)).body(producto);
+        } catch (VersionNoCoincideException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                                .body("El producto fue modificado por otra operación, vuelva a consultarlo");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
+    // Actualizaciones masivas filtradas por "idCategoria" y/o "estado". Precios: "modo" porcentaje
+    // (sobre el precio de venta) o margen (sobre el costo de compra) y su "valor"
+    @PutMapping("/masivo/precios")
+    public ResponseEntity<?> actualizarPreciosMasivo(@RequestBody Map<String, Object> requestData) {
+        try {
+            Integer idCategoria = entero(requestData.get("idCategoria"));
+            String estado = (String) requestData.get("estado");
+            String modo = (String) requestData.get("modo");
+            Object valorObj = requestData.get("valor");
+            BigDecimal valor = valorObj == null ? null : new BigDecimal(valorObj.toString());
+
+            ResultadoActualizacionMasiva resultado;
+            if ("porcentaje".equals(modo)) {
+                resultado = actualizacionMasivaProductoService.ajustarPrecios(valor, idCategoria, estado);
+            } else if ("margen".equals(modo)) {
+                resultado = actualizacionMasivaProductoService.aplicarMargen(valor, idCategoria, estado);
+            } else {
+                return ResponseEntity.badRequest().body("El campo 'modo' debe ser 'porcentaje' o 'margen'");
+            }
+            return ResponseEntity.ok(resultado);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body("Formato de número inválido");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
+    @PutMapping("/masivo/estado")
+    public ResponseEntity<?> cambiarEstadoMasivo(@RequestBody Map<String, Object> requestData) {
+        try {
+            String nuevoEstado = (String) requestData.get("nuevoEstado");
+            if (nuevoEstado == null || nuevoEstado.trim().isEmpty()) {
+                return ResponseEntity.badRequest().body("El campo 'nuevoEstado' es obligatorio");
+            }
+
+            ResultadoActualizacionMasiva resultado = actualizacionMasivaProductoService.cambiarEstado(
+                    nuevoEstado, entero(requestData.get("idCategoria")), (String) requestData.get("estado"));
+            return ResponseEntity.ok(resultado);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body("Formato de número inválido");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
+    @PutMapping("/masivo/categoria")
+    public ResponseEntity<?> moverCategoriaMasivo(@RequestBody Map<String, Object> requestData) {
+        try {
+            Object destinoObj = requestData.get("idCategoriaDestino");
+            if (destinoObj == null) {
+                return ResponseEntity.badRequest().body("El campo 'idCategoriaDestino' es obligatorio");
+            }
+
+            ResultadoActualizacionMasiva resultado = actualizacionMasivaProductoService.moverCategoria(
+                    entero(destinoObj), entero(requestData.get("idCategoria")), (String) requestData.get("estado"));
+            return ResponseEntity.ok(resultado);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body("Formato de número inválido");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
@@ -97,7 +283,7 @@ public class ProductoController {
                 precioCompra = new BigDecimal(precioCompraObj.toString());
             }
             
-            Producto producto = productoService.aumentarStock(id, cantidad, precioCompra);
+            Producto producto = coalescedorStock.aumentarStock(id, cantidad, precioCompra);
             return ResponseEntity.ok(producto);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().body("Formato de número inválido");
@@ -122,7 +308,7 @@ public class ProductoController {
             
             Integer cantidad = Integer.valueOf(cantidadObj.toString());
             
-            Producto producto = productoService.disminuirStock(id, cantidad);
+            Producto producto = coalescedorStock.disminuirStock(id, cantidad);
             return ResponseEntity.ok(producto);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().body("Formato de número inválido");
@@ -135,21 +321,91 @@ public class ProductoController {
     }
 
 
-    @GetMapping("/estado/{estado}")
-    public ResponseEntity<List<Producto>> obtenerProductosPorEstado(@PathVariable String estado) {
+    @PutMapping("/disminuir-stock")
+    public ResponseEntity<?> disminuirStockLote(@RequestBody List<LineaMovimientoStock> lineas) {
         try {
-            List<Producto> productos = productoService.obtenerProductosPorEstado(estado);
+            List<Producto> productos = productoService.disminuirStockLote(lineas);
             return ResponseEntity.ok(productos);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
+    // Registro de solo inserción en el libro de movimientos: cantidad positiva para entradas, negativa para salidas
+    @PostMapping("/{id}/movimientos")
+    public ResponseEntity<?> registrarMovimientoStock(@PathVariable Integer id,
+                                                     @RequestBody Map<String, Object> requestData) {
+        try {
+            Object cantidadObj = requestData.get("cantidad");
+
+            if (cantidadObj == null) {
+                return ResponseEntity.badRequest().body("El campo 'cantidad' es obligatorio");
+            }
+
+            Integer cantidad = Integer.valueOf(cantidadObj.toString());
+
+            MovimientoStock movimiento = productoService.registrarMovimientoStock(id, cantidad);
+            return ResponseEntity.status(HttpStatus.CREATED).body(movimiento);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body("Formato de número inválido");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<?> obtenerStock(@PathVariable Integer id,
+                                          @RequestParam(required = false)
+                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha) {
+        try {
+            StockProducto stock = productoService.obtenerStock(id, fecha);
+            return ResponseEntity.ok(stock);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
+    @GetMapping("/estado/{estado}")
+    public ResponseEntity<PaginaCursor<ProductoResumen>> obtenerProductosPorEstado(@PathVariable String estado,
+                                                                                   @RequestParam(required = false) Integer cursor,
+                                                                                   @RequestParam(required = false) Integer limite,
+                                                                                   WebRequest request) {
+        try {
+            String etag = etiquetasCatalogo.etagProductos();
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            PaginaCursor<ProductoResumen> productos = productoService.obtenerProductosPorEstado(estado, cursor, limite);
+            return ResponseEntity.ok().eTag(etag).body(productos);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     @GetMapping("/categoria/{idCategoria}")
-    public ResponseEntity<List<Producto>> obtenerProductosPorCategoria(@PathVariable Integer idCategoria) {
+    public ResponseEntity<PaginaCursor<ProductoResumen>> obtenerProductosPorCategoria(@PathVariable Integer idCategoria,
+                                                                                      @RequestParam(required = false) Integer cursor,
+                                                                                      @RequestParam(required = false) Integer limite,
+                                                                                      WebRequest request) {
         try {
-            List<Producto> productos = productoService.obtenerProductosPorCategoria(idCategoria);
-            return ResponseEntity.ok(productos);
+            String etag = etiquetasCatalogo.etagProductos();
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            PaginaCursor<ProductoResumen> productos = productoService.obtenerProductosPorCategoria(idCategoria, cursor, limite);
+            return ResponseEntity.ok().eTag(etag).body(productos);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -157,21 +413,84 @@ public class ProductoController {
 
 
     @GetMapping("/stock-bajo")
-    public ResponseEntity<List<Producto>> obtenerProductosConStockBajo(@RequestParam Integer stockMinimo) {
+    public ResponseEntity<PaginaCursor<ProductoResumen>> obtenerProductosConStockBajo(@RequestParam Integer stockMinimo,
+                                                                                      @RequestParam(required = false) Integer cursor,
+                                                                                      @RequestParam(required = false) Integer limite,
+                                                                                      WebRequest request) {
         try {
-            List<Producto> productos = productoService.obtenerProductosConStockBajo(stockMinimo);
-            return ResponseEntity.ok(productos);
+            String etag = etiquetasCatalogo.etagProductos();
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            PaginaCursor<ProductoResumen> productos = productoService.obtenerProductosConStockBajo(stockMinimo, cursor, limite);
+            return ResponseEntity.ok().eTag(etag).body(productos);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
 
+    @GetMapping(value = "/stock-bajo/alertas", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirAlertasStockBajo() {
+        return alertasStockBajo.suscribir();
+    }
+
+
+    // Feed de cambios de stock, estado y precio. EventSource reenvía Last-Event-ID al reconectarse;
+    // "desde" permite reanudar a clientes que no manejan la cabecera
+    @GetMapping(value = "/cambios", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirCambios(@RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId,
+                                       @RequestParam(required = false) Long desde) {
+        Long desdeId = desde;
+        if (desdeId == null && ultimoEventoId != null && !ultimoEventoId.isBlank()) {
+            try {
+                desdeId = Long.valueOf(ultimoEventoId.trim());
+            } catch (NumberFormatException e) {
+                // Id ajeno a este feed: se trata como desconocido y el cliente recibe "resync"
+                desdeId = Long.MAX_VALUE;
+            }
+        }
+        return feedCambiosProductos.suscribir(desdeId);
+    }
+
+
+    @GetMapping("/rango-precios")
+    public ResponseEntity<?> obtenerProductosPorRangoPrecios(@RequestParam BigDecimal precioMin,
+                                                             @RequestParam BigDecimal precioMax,
+                                                             @RequestParam(required = false) String estado,
+                                                             @RequestParam(required = false) Integer idCategoria,
+                                                             @RequestParam(required = false) BigDecimal cursorPrecio,
+                                                             @RequestParam(required = false) Integer cursor,
+                                                             @RequestParam(required = false) Integer limite,
+                                                             WebRequest request) {
+        try {
+            String etag = etiquetasCatalogo.etagProductos();
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            PaginaCursor<ProductoResumen> productos = productoService.obtenerProductosPorRangoPrecios(
+                    precioMin, precioMax, estado, idCategoria, cursorPrecio, cursor, limite);
+            return ResponseEntity.ok().eTag(etag).body(productos);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
     @GetMapping("/buscar")
-    public ResponseEntity<List<Producto>> buscarProductosPorNombre(@RequestParam String nombre) {
+    public ResponseEntity<List<ProductoResumen>> buscarProductosPorNombre(@RequestParam String nombre,
+                                                                          @RequestParam(required = false) Integer limite,
+                                                                          WebRequest request) {
         try {
-            List<Producto> productos = productoService.buscarProductosPorNombre(nombre);
-            return ResponseEntity.ok(productos);
+            String etag = etiquetasCatalogo.etagProductos();
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            List<ProductoResumen> productos = productoService.buscarProductosPorNombre(nombre, limite);
+            return ResponseEntity.ok().eTag(etag).body(productos);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -179,10 +498,16 @@ public class ProductoController {
 
 
     @GetMapping("/disponibles")
-    public ResponseEntity<List<Producto>> obtenerProductosDisponibles() {
+    public ResponseEntity<PaginaCursor<ProductoResumen>> obtenerProductosDisponibles(@RequestParam(required = false) Integer cursor,
+                                                                                     @RequestParam(required = false) Integer limite,
+                                                                                     WebRequest request) {
         try {
-            List<Producto> productos = productoService.obtenerProductosDisponibles();
-            return ResponseEntity.ok(productos);
+            String etag = etiquetasCatalogo.etagProductos();
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            PaginaCursor<ProductoResumen> productos = productoService.obtenerProductosDisponibles(cursor, limite);
+            return ResponseEntity.ok().eTag(etag).body(productos);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -191,10 +516,17 @@ public class ProductoController {
 
     @PutMapping("/{id}")
     public ResponseEntity<?> actualizarProducto(@PathVariable Integer id, 
-                                               @Valid @RequestBody Producto producto) {
+                                               @Valid @RequestBody Producto producto,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Producto productoActualizado = productoService.actualizarProducto(id, producto);
-            return ResponseEntity.ok(productoActualizado);
+            Producto productoActualizado = productoService.actualizarProducto(id, producto,
+                    EtiquetasCatalogo.versionEsperada(ifMatch));
+            return ResponseEntity.ok().eTag(etagProducto(productoActualizado)).body(productoActualizado);
+        } catch (VersionNoCoincideException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                                .body("El producto fue modificado por otra operación, vuelva a consultarlo");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
@@ -216,4 +548,14 @@ public class ProductoController {
                                 .body("Error interno del servidor");
         }
     }
-} 
\ No newline at end of file
+
+
+    private static Integer entero(Object valor) {
+        return valor == null ? null : Integer.valueOf(valor.toString());
+    }
+
+    private String etagProducto(Producto producto) {
+        return etiquetasCatalogo.etagProducto(producto.getIdProducto(), producto.getVersion(),
+                producto.getCategoria().getIdCategoria());
+    }
+}
\ No newline at end of file
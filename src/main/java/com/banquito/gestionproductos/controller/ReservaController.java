@@ -0,0 +1,75 @@
+package com.banquito.gestionproductos.controller;
+
+import com.banquito.gestionproductos.dto.DisponibilidadProducto;
+import com.banquito.gestionproductos.dto.LineaMovimientoStock;
+import com.banquito.gestionproductos.dto.Reserva;
+import com.banquito.gestionproductos.service.MotorReservas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/gestion-productos/reservas")
+@CrossOrigin(origins = "*")
+public class ReservaController {
+
+    @Autowired
+    private MotorReservas motorReservas;
+
+
+    @PostMapping
+    public ResponseEntity<?> reservar(@RequestBody List<LineaMovimientoStock> lineas) {
+        try {
+            Reserva reserva = motorReservas.reservar(lineas);
+            return ResponseEntity.status(HttpStatus.CREATED).body(reserva);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
+    @PostMapping("/{idReserva}/confirmar")
+    public ResponseEntity<?> confirmar(@PathVariable String idReserva) {
+        try {
+            Reserva reserva = motorReservas.confirmar(idReserva);
+            return ResponseEntity.ok(reserva);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
+    @DeleteMapping("/{idReserva}")
+    public ResponseEntity<?> liberar(@PathVariable String idReserva) {
+        try {
+            motorReservas.liberar(idReserva);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error interno del servidor");
+        }
+    }
+
+
+    @GetMapping("/productos/{idProducto}")
+    public ResponseEntity<DisponibilidadProducto> obtenerDisponibilidad(@PathVariable Integer idProducto) {
+        try {
+            Optional<DisponibilidadProducto> disponibilidad = motorReservas.obtenerDisponibilidad(idProducto);
+            return disponibilidad.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
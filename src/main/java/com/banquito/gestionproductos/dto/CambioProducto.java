@@ -0,0 +1,11 @@
+package com.banquito.gestionproductos.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Evento del feed de cambios: solo los campos que los terminales necesitan para actualizar su copia.
+ * En un producto eliminado los demás campos van en null. La versión crece con cada cambio del producto.
+ */
+public record CambioProducto(Integer idProducto, Integer stockActual, String estadoProducto, BigDecimal precioVenta,
+                             Long version) {
+}
@@ -0,0 +1,9 @@
+package com.banquito.gestionproductos.dto;
+
+/**
+ * Contadores del motor de reservas para un producto. volcadoRechazado indica que lo confirmado no cupo en el
+ * stock en el último volcado y sigue pendiente.
+ */
+public record DisponibilidadProducto(Integer idProducto, int disponible, int reservado, long confirmadoPendiente,
+                                     boolean volcadoRechazado) {
+}
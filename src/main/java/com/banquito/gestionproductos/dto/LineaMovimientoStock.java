@@ -0,0 +1,7 @@
+package com.banquito.gestionproductos.dto;
+
+/**
+ * Línea de un movimiento de stock en lote: producto y cantidad a mover.
+ */
+public record LineaMovimientoStock(Integer idProducto, Integer cantidad) {
+}
@@ -0,0 +1,9 @@
+package com.banquito.gestionproductos.dto;
+
+import java.util.List;
+
+/**
+ * Respuesta de la lectura por lote: los productos en el orden en que se pidieron y los ids que no existen.
+ */
+public record LoteProductos(List<ProductoResumen> productos, List<Integer> idsNoEncontrados) {
+}
@@ -0,0 +1,20 @@
+package com.banquito.gestionproductos.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Página de resultados paginada por cursor (keyset). El cursor es el último id
+ * devuelto; la siguiente página se obtiene enviándolo como parámetro {@code cursor}.
+ * Las páginas ordenadas por precio llevan además el precio de ese último producto, que se
+ * envía como {@code cursorPrecio}.
+ */
+public record PaginaCursor<T>(List<T> contenido, int limite, Integer siguienteCursor, boolean hayMas,
+                              @JsonInclude(JsonInclude.Include.NON_NULL) BigDecimal siguienteCursorPrecio) {
+
+    public PaginaCursor(List<T> contenido, int limite, Integer siguienteCursor, boolean hayMas) {
+        this(contenido, limite, siguienteCursor, hayMas, null);
+    }
+}
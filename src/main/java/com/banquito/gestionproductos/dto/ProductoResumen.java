@@ -0,0 +1,20 @@
+package com.banquito.gestionproductos.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Vista plana de un producto con los datos de su categoría, obtenida con una sola
+ * consulta (JOIN) sin cargar entidades en el contexto de persistencia.
+ */
+public record ProductoResumen(
+        Integer idProducto,
+        String nombreProducto,
+        String descripcion,
+        BigDecimal precioVenta,
+        BigDecimal costoCompra,
+        Integer stockActual,
+        String estadoProducto,
+        Integer idCategoria,
+        String nombreCategoria,
+        Long version) {
+}
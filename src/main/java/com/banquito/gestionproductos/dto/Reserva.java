@@ -0,0 +1,10 @@
+package com.banquito.gestionproductos.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reserva temporal de stock para un carrito. Si no se confirma antes de expiraEn, las unidades vuelven a estar disponibles.
+ */
+public record Reserva(String idReserva, List<LineaMovimientoStock> lineas, Instant expiraEn) {
+}
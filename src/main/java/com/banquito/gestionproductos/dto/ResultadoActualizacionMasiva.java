@@ -0,0 +1,7 @@
+package com.banquito.gestionproductos.dto;
+
+/**
+ * Resultado de una actualización masiva: filas afectadas por el UPDATE.
+ */
+public record ResultadoActualizacionMasiva(String operacion, int productosActualizados) {
+}
@@ -0,0 +1,14 @@
+package com.banquito.gestionproductos.dto;
+
+import java.util.List;
+
+/**
+ * Resumen de una importación masiva. Las filas con error no detienen el proceso;
+ * se reportan con su número de fila (la cabecera del CSV no cuenta).
+ */
+public record ResultadoImportacion(long filasLeidas, long filasInsertadas, long filasConError,
+                                   List<ErrorImportacion> errores) {
+
+    public record ErrorImportacion(long fila, String mensaje) {
+    }
+}
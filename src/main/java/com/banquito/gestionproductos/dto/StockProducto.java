@@ -0,0 +1,9 @@
+package com.banquito.gestionproductos.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock de un producto en un instante: el actual (fecha nula) o el reconstruido desde el libro de movimientos.
+ */
+public record StockProducto(Integer idProducto, long stockActual, LocalDateTime fecha) {
+}
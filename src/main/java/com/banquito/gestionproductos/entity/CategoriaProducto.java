@@ -21,6 +21,10 @@ public class CategoriaProducto {
     @Column(name = "descripcion", columnDefinition = "TEXT")
     private String descripcion;
 
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     // Constructores
     public CategoriaProducto() {}
 
@@ -54,6 +58,14 @@ public class CategoriaProducto {
         this.descripcion = descripcion;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "CategoriaProducto{" +
@@ -0,0 +1,98 @@
+package com.banquito.gestionproductos.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Movimiento del libro de stock (solo inserción). La cantidad lleva signo: positiva para
+ * entradas y negativa para salidas. Los movimientos con aplicado = false todavía no se han
+ * consolidado en productos.stock_actual.
+ */
+@Entity
+@Table(name = "movimientos_stock", indexes = {
+    @Index(name = "idx_movimientos_stock_producto_aplicado", columnList = "id_producto, aplicado"),
+    @Index(name = "idx_movimientos_stock_producto_fecha", columnList = "id_producto, fecha")
+})
+public class MovimientoStock {
+
+    // Secuencia con asignación por bloques: los INSERT no esperan un id de la base y se agrupan en lotes
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movimientos_stock_seq")
+    @SequenceGenerator(name = "movimientos_stock_seq", sequenceName = "movimientos_stock_seq", allocationSize = 50)
+    @Column(name = "id_movimiento")
+    private Long idMovimiento;
+
+    @Column(name = "id_producto", nullable = false)
+    private Integer idProducto;
+
+    @Column(name = "cantidad", nullable = false)
+    private Integer cantidad;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDateTime fecha;
+
+    @Column(name = "aplicado", nullable = false)
+    private Boolean aplicado;
+
+    // Constructores
+    public MovimientoStock() {}
+
+    public MovimientoStock(Integer idProducto, Integer cantidad, LocalDateTime fecha, Boolean aplicado) {
+        this.idProducto = idProducto;
+        this.cantidad = cantidad;
+        this.fecha = fecha;
+        this.aplicado = aplicado;
+    }
+
+    // Getters y Setters
+    public Long getIdMovimiento() {
+        return idMovimiento;
+    }
+
+    public void setIdMovimiento(Long idMovimiento) {
+        this.idMovimiento = idMovimiento;
+    }
+
+    public Integer getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Integer idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDateTime fecha) {
+        this.fecha = fecha;
+    }
+
+    public Boolean getAplicado() {
+        return aplicado;
+    }
+
+    public void setAplicado(Boolean aplicado) {
+        this.aplicado = aplicado;
+    }
+
+    @Override
+    public String toString() {
+        return "MovimientoStock{" +
+                "idMovimiento=" + idMovimiento +
+                ", idProducto=" + idProducto +
+                ", cantidad=" + cantidad +
+                ", fecha=" + fecha +
+                ", aplicado=" + aplicado +
+                '}';
+    }
+}
@@ -5,7 +5,16 @@ import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "productos")
+@Table(name = "productos", indexes = {
+    // Búsqueda de nombres repetidos en el alta y en cada bloque de la importación masiva
+    @Index(name = "idx_productos_nombre", columnList = "nombre_producto"),
+    // Un índice por combinación de filtros del rango de precios, terminado en (precio_venta, id_producto): el mismo
+    // orden del keyset de la consulta
+    @Index(name = "idx_productos_precio_venta", columnList = "precio_venta, id_producto"),
+    @Index(name = "idx_productos_estado_precio", columnList = "estado_producto, precio_venta, id_producto"),
+    @Index(name = "idx_productos_estado_categoria_precio", columnList = "estado_producto, id_categoria, precio_venta, id_producto"),
+    @Index(name = "idx_productos_categoria_precio", columnList = "id_categoria, precio_venta, id_producto")
+})
 public class Producto {
 
     @Id
@@ -46,6 +55,11 @@ public class Producto {
     @JoinColumn(name = "id_categoria", nullable = false)
     private CategoriaProducto categoria;
 
+    // Versión para el control optimista de concurrencia y las ETag; las actualizaciones masivas la incrementan a mano
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     // Constructores
     public Producto() {}
 
@@ -124,6 +138,14 @@ public class Producto {
         this.categoria = categoria;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Producto{" +
@@ -0,0 +1,14 @@
+package com.banquito.gestionproductos.event;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+
+/**
+ * Se publica en cada modificación de una categoría. Los oyentes lo reciben después del
+ * commit; {@code categoria} es el estado final o {@code null} si la categoría fue eliminada.
+ */
+public record CategoriaModificadaEvent(Integer idCategoria, CategoriaProducto categoria) {
+
+    public boolean eliminada() {
+        return categoria == null;
+    }
+}
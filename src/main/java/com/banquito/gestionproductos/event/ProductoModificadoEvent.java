@@ -0,0 +1,14 @@
+package com.banquito.gestionproductos.event;
+
+import com.banquito.gestionproductos.entity.Producto;
+
+/**
+ * Se publica en cada modificación de un producto. Los oyentes lo reciben después del
+ * commit; {@code producto} es el estado final o {@code null} si el producto fue eliminado.
+ */
+public record ProductoModificadoEvent(Integer idProducto, Producto producto) {
+
+    public boolean eliminado() {
+        return producto == null;
+    }
+}
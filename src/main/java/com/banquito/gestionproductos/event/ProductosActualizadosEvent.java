@@ -0,0 +1,9 @@
+package com.banquito.gestionproductos.event;
+
+/**
+ * Se publica después de una actualización masiva (un solo UPDATE sobre muchas filas). No lleva el
+ * estado de cada producto: los oyentes lo reciben después del commit y descartan todo lo que
+ * tengan en memoria sobre productos.
+ */
+public record ProductosActualizadosEvent(String operacion, int productosActualizados) {
+}
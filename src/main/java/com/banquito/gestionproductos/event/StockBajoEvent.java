@@ -0,0 +1,8 @@
+package com.banquito.gestionproductos.event;
+
+/**
+ * Se publica cuando el stock de un producto baja del umbral configurado
+ * ({@code productos.stock-bajo.umbral}).
+ */
+public record StockBajoEvent(Integer idProducto, String nombreProducto, Integer stockActual, int umbral) {
+}
@@ -0,0 +1,11 @@
+package com.banquito.gestionproductos.exception;
+
+/**
+ * La versión indicada en If-Match ya no es la versión actual del recurso: otra operación lo modificó.
+ */
+public class VersionNoCoincideException extends RuntimeException {
+
+    public VersionNoCoincideException(String mensaje) {
+        super(mensaje);
+    }
+}
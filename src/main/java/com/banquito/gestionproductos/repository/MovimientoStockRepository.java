@@ -0,0 +1,30 @@
+package com.banquito.gestionproductos.repository;
+
+import com.banquito.gestionproductos.entity.MovimientoStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MovimientoStockRepository extends JpaRepository<MovimientoStock, Long> {
+
+    // Cada fila: [idProducto, suma de cantidades pendientes]
+    @Query("SELECT m.idProducto, SUM(m.cantidad) FROM MovimientoStock m WHERE m.aplicado = false GROUP BY m.idProducto")
+    List<Object[]> sumarPendientesPorProducto();
+
+    @Query("SELECT MIN(m.fecha) FROM MovimientoStock m WHERE m.idProducto = :idProducto")
+    Optional<LocalDateTime> buscarPrimeraFecha(@Param("idProducto") Integer idProducto);
+
+    @Query("SELECT COALESCE(SUM(m.cantidad), 0) FROM MovimientoStock m WHERE m.idProducto = :idProducto AND m.fecha > :fecha")
+    long sumarPosterioresA(@Param("idProducto") Integer idProducto, @Param("fecha") LocalDateTime fecha);
+
+    @Modifying
+    @Query("UPDATE MovimientoStock m SET m.aplicado = true WHERE m.idProducto = :idProducto AND m.aplicado = false")
+    int marcarAplicados(@Param("idProducto") Integer idProducto);
+}
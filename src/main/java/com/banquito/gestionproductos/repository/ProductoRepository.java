@@ -1,18 +1,46 @@
 package com.banquito.gestionproductos.repository;
 
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
 import com.banquito.gestionproductos.entity.Producto;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductoRepository extends JpaRepository<Producto, Integer> {
+
+    // Filtro opcional de las actualizaciones masivas: por categoría, por estado o ambos
+    String FILTRO_MASIVO = "WHERE (:idCategoria IS NULL OR fk(p.categoria) = :idCategoria) " +
+            "AND (:estado IS NULL OR p.estadoProducto = :estado) ";
+
+    // Proyección de lectura: solo las columnas que devuelven los GET, con la categoría unida en la misma consulta
+    String COLUMNAS_RESUMEN = "SELECT new com.banquito.gestionproductos.dto.ProductoResumen(p.idProducto, " +
+            "p.nombreProducto, p.descripcion, p.precioVenta, p.costoCompra, p.stockActual, p.estadoProducto, " +
+            "c.idCategoria, c.nombreCategoria, p.version) FROM Producto p ";
+    String SELECT_RESUMEN = COLUMNAS_RESUMEN + "JOIN p.categoria c ";
+
+    @Query(SELECT_RESUMEN + "WHERE p.idProducto = :id")
+    Optional<ProductoResumen> findResumenById(@Param("id") Integer id);
+
+    @Query(SELECT_RESUMEN + "WHERE p.idProducto IN :ids")
+    List<ProductoResumen> findResumenesByIds(@Param("ids") Collection<Integer> ids);
+
     List<Producto> findByEstadoProducto(String estado);
-    @Query("SELECT p FROM Producto p WHERE p.categoria.idCategoria = :idCategoria")
+    @Query("SELECT p FROM Producto p WHERE fk(p.categoria) = :idCategoria")
     List<Producto> findByCategoria(@Param("idCategoria") Integer idCategoria);
 
     @Query("SELECT p FROM Producto p WHERE p.stockActual < :stockMinimo")
@@ -26,7 +54,143 @@ public interface ProductoRepository extends JpaRepository<Producto, Integer> {
 
     boolean existsByNombreProducto(String nombreProducto);
 
+    @Query("SELECT p.nombreProducto FROM Producto p WHERE p.nombreProducto IN :nombres")
+    List<String> findNombresExistentes(@Param("nombres") Collection<String> nombres);
+
+    @Query("SELECT p.idProducto, p.nombreProducto FROM Producto p WHERE p.nombreProducto IN :nombres")
+    List<Object[]> findIdsPorNombre(@Param("nombres") Collection<String> nombres);
+
     @Query("SELECT p FROM Producto p WHERE p.precioVenta BETWEEN :precioMin AND :precioMax")
     List<Producto> findByRangoPrecios(@Param("precioMin") java.math.BigDecimal precioMin, 
                                      @Param("precioMax") java.math.BigDecimal precioMax);
-} 
\ No newline at end of file
+
+    // Consultas paginadas por cursor (keyset sobre idProducto)
+    @Query(SELECT_RESUMEN + "WHERE p.idProducto > :cursor ORDER BY p.idProducto")
+    List<ProductoResumen> findPaginaDesde(@Param("cursor") Integer cursor, Limit limite);
+
+    @Query(SELECT_RESUMEN + "WHERE p.estadoProducto = :estado AND p.idProducto > :cursor ORDER BY p.idProducto")
+    List<ProductoResumen> findByEstadoProductoDesde(@Param("estado") String estado, @Param("cursor") Integer cursor, Limit limite);
+
+    @Query(SELECT_RESUMEN + "WHERE c.idCategoria = :idCategoria AND p.idProducto > :cursor ORDER BY p.idProducto")
+    List<ProductoResumen> findByCategoriaDesde(@Param("idCategoria") Integer idCategoria, @Param("cursor") Integer cursor, Limit limite);
+
+    @Query(SELECT_RESUMEN + "WHERE p.estadoProducto = 'Activo' AND p.stockActual > 0 " +
+           "AND p.idProducto > :cursor ORDER BY p.idProducto")
+    List<ProductoResumen> findProductosDisponiblesDesde(@Param("cursor") Integer cursor, Limit limite);
+
+    // Rango de precios: una consulta por combinación de filtros, para que cada una use el prefijo de un índice
+    // (un "(:estado IS NULL OR ...)" obliga al planificador a un plan que sirva también sin filtro). El keyset es
+    // (precioVenta, idProducto), el mismo orden de los índices: la página siguiente empieza a leer el índice en
+    // el precio del cursor en lugar de recorrer el rango desde precioMin. precioDesde es el mayor entre
+    // precioMin y el precio del cursor. Las columnas filtradas por igualdad encabezan el ORDER BY: son constantes
+    // en el resultado, así que el orden no cambia, y el ORDER BY coincide con el índice entero (H2 solo evita
+    // ordenar cuando el ORDER BY empieza por las primeras columnas del índice)
+    String RANGO_PRECIOS = "WHERE p.precioVenta BETWEEN :precioDesde AND :precioMax " +
+            "AND (p.precioVenta, p.idProducto) > (:precioDesde, :cursor) ";
+    String ORDEN_PRECIO = "p.precioVenta, p.idProducto";
+
+    // Une la categoría por la clave foránea: así fk(p.categoria) filtra por productos.id_categoria, la columna
+    // indexada, y no por la de la tabla unida. LEFT JOIN (la categoría es obligatoria, el resultado es el mismo)
+    // fija a productos como tabla de partida: con un JOIN interno H2 parte de las pocas categorías, recorre el
+    // rango por id_categoria y ordena todo antes de cortar la página
+    String SELECT_RESUMEN_RANGO = COLUMNAS_RESUMEN + "LEFT JOIN CategoriaProducto c ON c.idCategoria = fk(p.categoria) ";
+
+    @Query(SELECT_RESUMEN_RANGO + RANGO_PRECIOS + "ORDER BY " + ORDEN_PRECIO)
+    List<ProductoResumen> findByRangoPreciosDesde(@Param("precioDesde") java.math.BigDecimal precioDesde,
+                                                  @Param("precioMax") java.math.BigDecimal precioMax,
+                                                  @Param("cursor") Integer cursor, Limit limite);
+
+    @Query(SELECT_RESUMEN_RANGO + RANGO_PRECIOS + "AND p.estadoProducto = :estado " +
+           "ORDER BY p.estadoProducto, " + ORDEN_PRECIO)
+    List<ProductoResumen> findByRangoPreciosYEstadoDesde(@Param("precioDesde") java.math.BigDecimal precioDesde,
+                                                         @Param("precioMax") java.math.BigDecimal precioMax,
+                                                         @Param("estado") String estado,
+                                                         @Param("cursor") Integer cursor, Limit limite);
+
+    @Query(SELECT_RESUMEN_RANGO + RANGO_PRECIOS + "AND fk(p.categoria) = :idCategoria " +
+           "ORDER BY fk(p.categoria), " + ORDEN_PRECIO)
+    List<ProductoResumen> findByRangoPreciosYCategoriaDesde(@Param("precioDesde") java.math.BigDecimal precioDesde,
+                                                            @Param("precioMax") java.math.BigDecimal precioMax,
+                                                            @Param("idCategoria") Integer idCategoria,
+                                                            @Param("cursor") Integer cursor, Limit limite);
+
+    @Query(SELECT_RESUMEN_RANGO + RANGO_PRECIOS + "AND p.estadoProducto = :estado AND fk(p.categoria) = :idCategoria " +
+           "ORDER BY p.estadoProducto, fk(p.categoria), " + ORDEN_PRECIO)
+    List<ProductoResumen> findByRangoPreciosEstadoYCategoriaDesde(@Param("precioDesde") java.math.BigDecimal precioDesde,
+                                                                  @Param("precioMax") java.math.BigDecimal precioMax,
+                                                                  @Param("estado") String estado,
+                                                                  @Param("idCategoria") Integer idCategoria,
+                                                                  @Param("cursor") Integer cursor, Limit limite);
+
+    // Exportación del catálogo: proyección con la categoría unida y lectura por bloques (fetch size)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(SELECT_RESUMEN + "ORDER BY p.idProducto")
+    Stream<ProductoResumen> streamCatalogo();
+
+    // Movimientos de stock atómicos: una sola sentencia UPDATE condicional, sin leer y reescribir la entidad.
+    // comprometido son las unidades que ya vendió otro camino y aún no están en stock_actual: limitan lo que se
+    // puede vender, pero 'Agotado' sigue al stock físico, como en la compactación, el lote y el volcado de
+    // reservas; el producto queda agotado cuando esas unidades se consolidan y stock_actual llega a 0
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.stockActual = p.stockActual - :cantidad, p.version = p.version + 1, " +
+           "p.estadoProducto = CASE WHEN p.stockActual = :cantidad THEN 'Agotado' ELSE p.estadoProducto END " +
+           "WHERE p.idProducto = :id AND p.stockActual - :comprometido >= :cantidad")
+    int disminuirStockAtomico(@Param("id") Integer id, @Param("cantidad") Integer cantidad,
+                              @Param("comprometido") Integer comprometido);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.stockActual = p.stockActual + :cantidad, p.estadoProducto = 'Activo', " +
+           "p.version = p.version + 1 " +
+           "WHERE p.idProducto = :id")
+    int aumentarStockAtomico(@Param("id") Integer id, @Param("cantidad") Integer cantidad);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.stockActual = p.stockActual + :cantidad, p.costoCompra = :costoCompra, " +
+           "p.precioVenta = :precioVenta, p.estadoProducto = 'Activo', p.version = p.version + 1 WHERE p.idProducto = :id")
+    int aumentarStockConPrecioAtomico(@Param("id") Integer id, @Param("cantidad") Integer cantidad,
+                                      @Param("costoCompra") java.math.BigDecimal costoCompra,
+                                      @Param("precioVenta") java.math.BigDecimal precioVenta);
+
+    // Consolidación del libro de movimientos: el estado pasa a 'Agotado' en cero y vuelve a 'Activo' si se repone
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.stockActual = p.stockActual + :delta, p.version = p.version + 1, p.estadoProducto = CASE " +
+           "WHEN p.stockActual + :delta = 0 THEN 'Agotado' " +
+           "WHEN p.estadoProducto = 'Agotado' AND p.stockActual + :delta > 0 THEN 'Activo' " +
+           "ELSE p.estadoProducto END WHERE p.idProducto = :id AND p.stockActual + :delta >= 0")
+    int aplicarDeltaStock(@Param("id") Integer id, @Param("delta") Integer delta);
+
+    @Query("SELECT p.stockActual FROM Producto p WHERE p.idProducto = :id")
+    Optional<Integer> findStockActualById(@Param("id") Integer id);
+
+    // Bloquea las filas siempre en orden de id para que dos pedidos concurrentes no se bloqueen mutuamente
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Producto p WHERE p.idProducto IN :ids ORDER BY p.idProducto")
+    List<Producto> findByIdsParaActualizar(@Param("ids") Collection<Integer> ids);
+
+    // Actualizaciones masivas: una sola sentencia por operación, sin cargar las entidades
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.precioVenta = ROUND(p.precioVenta * :factor, 2), p.version = p.version + 1 " +
+           FILTRO_MASIVO)
+    int ajustarPreciosMasivo(@Param("factor") java.math.BigDecimal factor, @Param("idCategoria") Integer idCategoria,
+                             @Param("estado") String estado);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.precioVenta = ROUND(p.costoCompra * :margen, 2), p.version = p.version + 1 " +
+           FILTRO_MASIVO + "AND p.costoCompra > 0")
+    int aplicarMargenMasivo(@Param("margen") java.math.BigDecimal margen, @Param("idCategoria") Integer idCategoria,
+                            @Param("estado") String estado);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.estadoProducto = :nuevoEstado, p.version = p.version + 1 " +
+           FILTRO_MASIVO + "AND p.estadoProducto <> :nuevoEstado")
+    int cambiarEstadoMasivo(@Param("nuevoEstado") String nuevoEstado, @Param("idCategoria") Integer idCategoria,
+                            @Param("estado") String estado);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.categoria = :destino, p.version = p.version + 1 " + FILTRO_MASIVO)
+    int moverCategoriaMasivo(@Param("destino") CategoriaProducto destino, @Param("idCategoria") Integer idCategoria,
+                             @Param("estado") String estado);
+}
@@ -0,0 +1,106 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.ResultadoActualizacionMasiva;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.event.ProductosActualizadosEvent;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+/**
+ * Cambios de precio, estado y categoría sobre todos los productos de una categoría y/o estado, cada
+ * uno con un único UPDATE. Las filas no se cargan: la caché, las ETag y el feed de cambios se
+ * invalidan en bloque con ProductosActualizadosEvent después del commit.
+ */
+@Service
+@Transactional
+@Timed(value = "gestionproductos.servicio", histogram = true)
+public class ActualizacionMasivaProductoService {
+
+    private static final BigDecimal CIEN = new BigDecimal("100");
+
+    @Value("${productos.precio.margen:1.25}")
+    private BigDecimal margenPorDefecto;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CategoriaProductoRepository categoriaProductoRepository;
+
+    @Autowired
+    private RegistroCategorias registroCategorias;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Sube o baja el precio de venta actual en un porcentaje (10 = +10 %, -5 = -5 %)
+    public ResultadoActualizacionMasiva ajustarPrecios(BigDecimal porcentaje, Integer idCategoria, String estado) {
+        validarFiltro(idCategoria, estado);
+        if (porcentaje == null || porcentaje.compareTo(CIEN.negate()) <= 0) {
+            throw new RuntimeException("El porcentaje debe ser mayor a -100");
+        }
+
+        BigDecimal factor = BigDecimal.ONE.add(porcentaje.divide(CIEN));
+        return publicar("precios-porcentaje", productoRepository.ajustarPreciosMasivo(factor, idCategoria, estado));
+    }
+
+    // Recalcula el precio de venta como costoCompra * margen; sin margen se usa productos.precio.margen
+    public ResultadoActualizacionMasiva aplicarMargen(BigDecimal margen, Integer idCategoria, String estado) {
+        validarFiltro(idCategoria, estado);
+        BigDecimal margenAplicado = margen != null ? margen : margenPorDefecto;
+        if (margenAplicado.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new RuntimeException("El margen debe ser mayor a 0");
+        }
+
+        return publicar("precios-margen", productoRepository.aplicarMargenMasivo(margenAplicado, idCategoria, estado));
+    }
+
+    public ResultadoActualizacionMasiva cambiarEstado(String nuevoEstado, Integer idCategoria, String estado) {
+        validarFiltro(idCategoria, estado);
+        if (nuevoEstado == null || !ProductoService.esEstadoValido(nuevoEstado)) {
+            throw new RuntimeException("Estado inválido. Debe ser: Activo, Inactivo o Agotado");
+        }
+
+        return publicar("estado", productoRepository.cambiarEstadoMasivo(nuevoEstado, idCategoria, estado));
+    }
+
+    public ResultadoActualizacionMasiva moverCategoria(Integer idCategoriaDestino, Integer idCategoria, String estado) {
+        if (idCategoria == null) {
+            throw new RuntimeException("Debe indicar la categoría de origen");
+        }
+        if (idCategoriaDestino == null || !registroCategorias.existe(idCategoriaDestino)) {
+            throw new RuntimeException("No se encontró la categoría con ID: " + idCategoriaDestino);
+        }
+        if (idCategoriaDestino.equals(idCategoria)) {
+            throw new RuntimeException("La categoría de destino debe ser distinta a la de origen");
+        }
+
+        CategoriaProducto destino = categoriaProductoRepository.getReferenceById(idCategoriaDestino);
+        return publicar("categoria", productoRepository.moverCategoriaMasivo(destino, idCategoria, estado));
+    }
+
+    // Sin filtro la operación alcanzaría todo el catálogo; se exige al menos un criterio
+    private void validarFiltro(Integer idCategoria, String estado) {
+        if (idCategoria == null && estado == null) {
+            throw new RuntimeException("Debe indicar la categoría, el estado o ambos");
+        }
+        if (estado != null && !ProductoService.esEstadoValido(estado)) {
+            throw new RuntimeException("Estado inválido. Debe ser: Activo, Inactivo o Agotado");
+        }
+    }
+
+    private ResultadoActualizacionMasiva publicar(String operacion, int productosActualizados) {
+        if (productosActualizados > 0) {
+            eventPublisher.publishEvent(new ProductosActualizadosEvent(operacion, productosActualizados));
+        }
+        return new ResultadoActualizacionMasiva(operacion, productosActualizados);
+    }
+}
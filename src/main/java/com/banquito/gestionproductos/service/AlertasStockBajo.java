@@ -0,0 +1,116 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.event.StockBajoEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Envía los avisos de stock bajo a los clientes suscritos por Server-Sent Events.
+ *
+ * El aviso se publica en el hilo que confirmó la transacción: aquí solo se encola. Cada suscriptor
+ * tiene una cola acotada que se vacía en su propio hilo virtual, así un cliente lento no frena la
+ * escritura ni a los demás. Si su cola se llena se cierra su conexión; al reconectarse puede
+ * consultar GET /productos/stock-bajo para recuperar lo que se perdió.
+ */
+@Component
+public class AlertasStockBajo {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertasStockBajo.class);
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final ExecutorService envios = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${productos.stock-bajo.buffer-suscriptor:256}")
+    private int capacidadSuscriptor;
+
+    @EventListener(ContextClosedEvent.class)
+    public void cerrarSuscripciones() {
+        suscriptores.forEach(s -> s.emisor.complete());
+        suscriptores.clear();
+    }
+
+    @PreDestroy
+    public void detener() {
+        envios.shutdownNow();
+    }
+
+    public SseEmitter suscribir() {
+        SseEmitter emisor = new SseEmitter();
+        Suscriptor suscriptor = new Suscriptor(emisor, capacidadSuscriptor);
+        emisor.onCompletion(() -> suscriptores.remove(suscriptor));
+        emisor.onTimeout(() -> suscriptores.remove(suscriptor));
+        emisor.onError(e -> suscriptores.remove(suscriptor));
+        suscriptores.add(suscriptor);
+        return emisor;
+    }
+
+    @EventListener
+    public void alDetectarStockBajo(StockBajoEvent evento) {
+        log.info("Stock bajo en producto {}: {} unidades (umbral {})",
+                evento.idProducto(), evento.stockActual(), evento.umbral());
+
+        for (Suscriptor suscriptor : suscriptores) {
+            if (suscriptor.pendientes.offer(evento)) {
+                programarEnvio(suscriptor);
+            } else {
+                log.warn("Suscriptor de alertas de stock bajo sin leer {} avisos: se cierra su conexión",
+                        capacidadSuscriptor);
+                descartar(suscriptor);
+            }
+        }
+    }
+
+    private void programarEnvio(Suscriptor suscriptor) {
+        if (!suscriptor.pendientes.isEmpty() && suscriptor.enviando.compareAndSet(false, true)) {
+            envios.execute(() -> enviarPendientes(suscriptor));
+        }
+    }
+
+    private void enviarPendientes(Suscriptor suscriptor) {
+        try {
+            do {
+                StockBajoEvent evento;
+                while ((evento = suscriptor.pendientes.poll()) != null) {
+                    suscriptor.emisor.send(SseEmitter.event().name("stock-bajo").data(evento));
+                }
+                suscriptor.enviando.set(false);
+                // Un aviso encolado justo antes de liberar el turno se envía en esta misma pasada
+            } while (!suscriptor.pendientes.isEmpty() && suscriptor.enviando.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException e) {
+            descartar(suscriptor);
+        }
+    }
+
+    private void descartar(Suscriptor suscriptor) {
+        suscriptores.remove(suscriptor);
+        suscriptor.pendientes.clear();
+        suscriptor.emisor.complete();
+    }
+
+    private static final class Suscriptor {
+
+        private final SseEmitter emisor;
+        private final BlockingQueue<StockBajoEvent> pendientes;
+        private final AtomicBoolean enviando = new AtomicBoolean();
+
+        private Suscriptor(SseEmitter emisor, int capacidad) {
+            this.emisor = emisor;
+            this.pendientes = new ArrayBlockingQueue<>(capacidad);
+        }
+    }
+}
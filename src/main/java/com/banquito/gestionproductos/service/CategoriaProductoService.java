@@ -1,9 +1,14 @@
 package com.banquito.gestionproductos.service;
 
 import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.event.CategoriaModificadaEvent;
+import com.banquito.gestionproductos.exception.VersionNoCoincideException;
 import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -11,15 +16,23 @@ import java.util.Optional;
 
 @Service
 @Transactional
+@Timed(value = "gestionproductos.servicio", histogram = true)
 public class CategoriaProductoService {
 
     @Autowired
     private CategoriaProductoRepository categoriaProductoRepository;
 
+    @Autowired
+    private RegistroCategorias registroCategorias;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-    @Transactional(readOnly = true)
+
+    // Las lecturas se sirven desde el registro en memoria, sin abrir transacción
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<CategoriaProducto> obtenerTodasLasCategorias() {
-        return categoriaProductoRepository.findAll();
+        return registroCategorias.listar();
     }
 
 
@@ -28,11 +41,11 @@ public class CategoriaProductoService {
         if (categoriaProductoRepository.existsByNombreCategoria(categoria.getNombreCategoria())) {
             throw new RuntimeException("Ya existe una categoría con el nombre: " + categoria.getNombreCategoria());
         }
-        return categoriaProductoRepository.save(categoria);
+        return publicarModificacion(categoriaProductoRepository.save(categoria));
     }
 
 
-    public CategoriaProducto actualizarCategoria(Integer id, CategoriaProducto categoriaActualizada) {
+    public CategoriaProducto actualizarCategoria(Integer id, CategoriaProducto categoriaActualizada, Long versionEsperada) {
         Optional<CategoriaProducto> categoriaExistente = categoriaProductoRepository.findById(id);
         
         if (categoriaExistente.isEmpty()) {
@@ -41,6 +54,11 @@ public class CategoriaProductoService {
 
         CategoriaProducto categoria = categoriaExistente.get();
 
+        if (versionEsperada != null && !versionEsperada.equals(categoria.getVersion())) {
+            throw new VersionNoCoincideException("La categoría con ID " + id + " fue modificada: versión esperada " +
+                    versionEsperada + ", versión actual " + categoria.getVersion());
+        }
+
         if (!categoria.getNombreCategoria().equals(categoriaActualizada.getNombreCategoria()) &&
             categoriaProductoRepository.existsByNombreCategoria(categoriaActualizada.getNombreCategoria())) {
             throw new RuntimeException("Ya existe una categoría con el nombre: " + categoriaActualizada.getNombreCategoria());
@@ -49,7 +67,7 @@ public class CategoriaProductoService {
         categoria.setNombreCategoria(categoriaActualizada.getNombreCategoria());
         categoria.setDescripcion(categoriaActualizada.getDescripcion());
 
-        return categoriaProductoRepository.save(categoria);
+        return publicarModificacion(categoriaProductoRepository.save(categoria));
     }
 
     public void eliminarCategoria(Integer id) {
@@ -57,11 +75,27 @@ public class CategoriaProductoService {
             throw new RuntimeException("No se encontró la categoría con ID: " + id);
         }
         categoriaProductoRepository.deleteById(id);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(id, null));
     }
 
 
-    @Transactional(readOnly = true)
+    // La tabla de categorías es pequeña y está completa en el registro: se filtra en memoria
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<CategoriaProducto> buscarCategorias(String texto) {
+        String consulta = IndiceBusquedaProductos.normalizar(texto).trim();
+        return registroCategorias.listar().stream()
+                .filter(c -> IndiceBusquedaProductos.normalizar(c.getNombreCategoria()).contains(consulta) ||
+                             IndiceBusquedaProductos.normalizar(c.getDescripcion()).contains(consulta))
+                .toList();
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
     public boolean existeCategoria(Integer id) {
-        return categoriaProductoRepository.existsById(id);
+        return registroCategorias.existe(id);
+    }
+
+    private CategoriaProducto publicarModificacion(CategoriaProducto categoria) {
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(categoria.getIdCategoria(), categoria));
+        return categoria;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import jakarta.annotation.PostConstruct;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Etapa de agrupación (group commit) delante de ProductoService.aumentarStock/disminuirStock. Los
+ * movimientos concurrentes sobre un mismo producto se encolan; el primer hilo que toma el turno
+ * aplica todo lo encolado en una sola transacción sobre la fila bloqueada, con un único UPDATE, y
+ * cada llamador recibe su propio resultado: las salidas se evalúan en orden de llegada y las que no
+ * alcanzan fallan con "Stock insuficiente" sin afectar a las demás. Como en ProductoService, lo
+ * comprometido por el libro de movimientos y el motor de reservas no se puede vender.
+ *
+ * Con productos.stock.coalescencia.habilitada=false las llamadas pasan directo a ProductoService.
+ */
+@Component
+public class CoalescedorStock {
+
+    private static final int MOVIMIENTOS_MAXIMOS_LOTE = 500;
+
+    private final Map<Integer, ColaProducto> colas = new ConcurrentHashMap<>();
+
+    @Value("${productos.stock.coalescencia.habilitada:false}")
+    private boolean habilitada;
+
+    // Espera opcional antes de drenar para juntar más movimientos; con 0 se agrupa lo que llegó durante el lote anterior
+    @Value("${productos.stock.coalescencia.ventana:0ms}")
+    private Duration ventana;
+
+    @Value("${productos.precio.margen:1.25}")
+    private BigDecimal margenPrecioVenta;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private LibroMovimientosStock libroMovimientosStock;
+
+    @Autowired
+    private MetricasProductos metricasProductos;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private TransactionTemplate transaccion;
+
+    @PostConstruct
+    public void iniciar() {
+        transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    public Producto disminuirStock(Integer id, Integer cantidad) {
+        if (!habilitada) {
+            return productoService.disminuirStock(id, cantidad);
+        }
+        if (cantidad == null || cantidad <= 0) {
+            throw new RuntimeException("La cantidad debe ser mayor a 0");
+        }
+        return encolar(id, new Movimiento(-cantidad, null));
+    }
+
+    public Producto aumentarStock(Integer id, Integer cantidad, BigDecimal precioCompra) {
+        if (!habilitada) {
+            return productoService.aumentarStock(id, cantidad, precioCompra);
+        }
+        if (cantidad == null || cantidad <= 0) {
+            throw new RuntimeException("La cantidad debe ser mayor a 0");
+        }
+        return encolar(id, new Movimiento(cantidad, precioCompra));
+    }
+
+    private Producto encolar(Integer id, Movimiento movimiento) {
+        ColaProducto cola = colas.computeIfAbsent(id, k -> new ColaProducto());
+        cola.pendientes.add(movimiento);
+
+        // Quien toma el turno drena hasta vaciar la cola, también lo que llega durante sus lotes; los demás se
+        // bloquean en su resultado. Después de soltar el turno se vuelve a mirar la cola: un movimiento que no
+        // pudo tomarlo se encoló antes de que se soltara, así que aquí se ve y nunca queda sin drenar
+        while (!cola.pendientes.isEmpty() && cola.drenando.compareAndSet(false, true)) {
+            try {
+                while (!cola.pendientes.isEmpty()) {
+                    drenar(id, cola);
+                }
+            } finally {
+                cola.drenando.set(false);
+            }
+        }
+        return esperar(movimiento);
+    }
+
+    private void drenar(Integer id, ColaProducto cola) {
+        if (!ventana.isZero()) {
+            try {
+                Thread.sleep(ventana);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<Movimiento> lote = new ArrayList<>();
+        Movimiento movimiento;
+        while (lote.size() < MOVIMIENTOS_MAXIMOS_LOTE && (movimiento = cola.pendientes.poll()) != null) {
+            lote.add(movimiento);
+        }
+        if (lote.isEmpty()) {
+            return;
+        }
+
+        try {
+            Producto producto = transaccion.execute(estado -> aplicar(id, lote));
+            for (Movimiento aplicado : lote) {
+                if (aplicado.rechazo == null) {
+                    aplicado.resultado.complete(producto);
+                } else {
+                    aplicado.resultado.completeExceptionally(aplicado.rechazo);
+                }
+            }
+        } catch (RuntimeException e) {
+            lote.forEach(m -> m.resultado.completeExceptionally(e));
+        }
+    }
+
+    private Producto aplicar(Integer id, List<Movimiento> lote) {
+        List<Producto> encontrados = productoRepository.findByIdsParaActualizar(List.of(id));
+        if (encontrados.isEmpty()) {
+            throw new RuntimeException("No se encontró el producto con ID: " + id);
+        }
+
+        Producto producto = encontrados.get(0);
+        int salidas = 0;
+        for (Movimiento movimiento : lote) {
+            salidas += Math.max(-movimiento.cantidad, 0);
+        }
+        int comprometido = productoService.anotarVentaEnLugar(id, salidas);
+        int aplicados = 0;
+        for (Movimiento movimiento : lote) {
+            int stockActual = producto.getStockActual();
+            if (movimiento.cantidad < 0) {
+                int cantidad = -movimiento.cantidad;
+                if (stockActual - comprometido < cantidad) {
+                    movimiento.rechazo = new RuntimeException("Stock insuficiente. Stock actual: " + (stockActual - comprometido) +
+                                                            ", cantidad solicitada: " + cantidad);
+                    continue;
+                }
+                producto.setStockActual(stockActual - cantidad);
+                if (producto.getStockActual() == 0) {
+                    producto.setEstadoProducto("Agotado");
+                }
+                metricasProductos.registrarSalida(cantidad, producto.getStockActual() == 0);
+            } else {
+                producto.setStockActual(stockActual + movimiento.cantidad);
+                producto.setEstadoProducto("Activo");
+                if (movimiento.precioCompra != null && movimiento.precioCompra.compareTo(BigDecimal.ZERO) > 0) {
+                    producto.setCostoCompra(movimiento.precioCompra);
+                    producto.setPrecioVenta(ProductoService.calcularPrecioVenta(movimiento.precioCompra, margenPrecioVenta));
+                }
+                metricasProductos.registrarEntrada(movimiento.cantidad);
+            }
+            libroMovimientosStock.registrarAplicado(id, movimiento.cantidad);
+            aplicados++;
+        }
+
+        if (aplicados > 0) {
+            eventPublisher.publishEvent(new ProductoModificadoEvent(id, producto));
+        }
+        // El producto se entrega a hilos que no tienen la sesión; la categoría debe quedar cargada
+        Hibernate.initialize(producto.getCategoria());
+        return producto;
+    }
+
+    private Producto esperar(Movimiento movimiento) {
+        try {
+            return movimiento.resultado.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Operación de stock interrumpida");
+        }
+    }
+
+    private static final class ColaProducto {
+
+        private final Queue<Movimiento> pendientes = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean drenando = new AtomicBoolean();
+    }
+
+    private static final class Movimiento {
+
+        private final int cantidad;
+        private final BigDecimal precioCompra;
+        private final CompletableFuture<Producto> resultado = new CompletableFuture<>();
+        private RuntimeException rechazo;
+
+        private Movimiento(int cantidad, BigDecimal precioCompra) {
+            this.cantidad = cantidad;
+            this.precioCompra = precioCompra;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.config.DataSourceReplicas;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.event.CategoriaModificadaEvent;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.event.ProductosActualizadosEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ETag de los GET. Un producto se identifica por su versión (@Version) y la de su categoría, porque el
+ * resumen incluye el nombre de la categoría. Los listados usan un contador de cambios del catálogo que se
+ * incrementa después de cada commit; el controlador toma la etiqueta antes de consultar, así una
+ * respuesta nunca queda asociada a una etiqueta más nueva que sus datos.
+ *
+ * Con réplicas de lectura, el listado de otro cliente puede salir de una réplica que aún no recibió el
+ * cambio: la etiqueta de los listados de productos solo avanza al cerrarse la ventana de lectura propia
+ * (productos.replicas.lectura-propia), cuando la réplica ya debería tenerlo. Mientras tanto se sigue
+ * entregando la anterior, y un listado con datos nuevos queda asociado a ella, nunca al revés. El
+ * cliente que escribió lee del primario durante esa ventana y recibe la etiqueta al día.
+ *
+ * El contador vive en memoria: la época de arranque forma parte de la etiqueta para que un reinicio
+ * invalide las etiquetas emitidas antes.
+ */
+@Component
+public class EtiquetasCatalogo {
+
+    private static final long AGRUPACION_NANOS = Duration.ofMillis(10).toNanos();
+
+    private final String epoca = Long.toString(System.currentTimeMillis(), 36);
+
+    // Cambios confirmados, y los publicados en la etiqueta; solo con el monitor de esta instancia
+    private long cambiosProductos;
+    private long cambiosProductosPublicados;
+    // Cambios aún dentro de la ventana: {instante en nanos, valor de cambiosProductos}
+    private final ArrayDeque<long[]> cambiosEnVentana = new ArrayDeque<>();
+
+    private final AtomicLong cambiosCategorias = new AtomicLong();
+
+    @Autowired
+    private RegistroCategorias registroCategorias;
+
+    private final long ventanaNanos;
+
+    public EtiquetasCatalogo(@Value("${productos.replicas.habilitadas:false}") boolean replicasHabilitadas,
+                             @Value("${productos.replicas.lectura-propia:0s}") Duration ventanaLecturaPropia) {
+        this.ventanaNanos = replicasHabilitadas ? ventanaLecturaPropia.toNanos() : 0;
+    }
+
+    // Un If-None-Match anterior a la escritura del propio cliente no debe devolverle 304 con su listado viejo
+    public synchronized String etagProductos() {
+        if (DataSourceReplicas.lecturaEnPrimario()) {
+            return "\"p-" + epoca + "-" + cambiosProductos + "\"";
+        }
+        long cierre = System.nanoTime() - ventanaNanos;
+        while (!cambiosEnVentana.isEmpty() && cambiosEnVentana.peekFirst()[0] - cierre <= 0) {
+            cambiosProductosPublicados = cambiosEnVentana.pollFirst()[1];
+        }
+        return "\"p-" + epoca + "-" + cambiosProductosPublicados + "\"";
+    }
+
+    public String etagCategorias() {
+        return "\"c-" + epoca + "-" + cambiosCategorias.get() + "\"";
+    }
+
+    public String etagProducto(Integer idProducto, Long version, Integer idCategoria) {
+        long versionCategoria = registroCategorias.obtener(idCategoria)
+                .map(CategoriaProducto::getVersion)
+                .orElse(0L);
+        return "\"" + idProducto + "-" + version + "-" + versionCategoria + "\"";
+    }
+
+    public String etagCategoria(CategoriaProducto categoria) {
+        return "\"" + categoria.getIdCategoria() + "-" + categoria.getVersion() + "\"";
+    }
+
+    @TransactionalEventListener
+    public void alModificarProducto(ProductoModificadoEvent evento) {
+        registrarCambioProductos();
+    }
+
+    @TransactionalEventListener
+    public void alActualizarProductos(ProductosActualizadosEvent evento) {
+        registrarCambioProductos();
+    }
+
+    // Los listados de productos muestran el nombre de la categoría
+    @TransactionalEventListener
+    public void alModificarCategoria(CategoriaModificadaEvent evento) {
+        cambiosCategorias.incrementAndGet();
+        registrarCambioProductos();
+    }
+
+    private synchronized void registrarCambioProductos() {
+        cambiosProductos++;
+        if (ventanaNanos == 0) {
+            cambiosProductosPublicados = cambiosProductos;
+            return;
+        }
+        // Los cambios muy seguidos comparten una entrada que toma el instante del último: se publican un poco
+        // más tarde, nunca antes, y la cola no crece con la tasa de escrituras
+        long ahora = System.nanoTime();
+        long[] ultimo = cambiosEnVentana.peekLast();
+        if (ultimo != null && ahora - ultimo[0] < AGRUPACION_NANOS) {
+            ultimo[0] = ahora;
+            ultimo[1] = cambiosProductos;
+        } else {
+            cambiosEnVentana.addLast(new long[]{ahora, cambiosProductos});
+        }
+    }
+
+    /**
+     * Versión contenida en un If-Match ("id-version..."). Devuelve null si no hay condición (ausente o "*")
+     * y -1 si la etiqueta no tiene el formato esperado, para que la comparación falle.
+     *
+     * Se acepta la forma débil (W/): Tomcat la genera al comprimir la respuesta y la versión sigue
+     * identificando exactamente el contenido.
+     */
+    public static Long versionEsperada(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String etiqueta = ifMatch.trim();
+        if (etiqueta.startsWith("W/")) {
+            etiqueta = etiqueta.substring(2);
+        }
+        etiqueta = etiqueta.replace("\"", "");
+        String[] partes = etiqueta.split("-");
+        if (partes.length < 2) {
+            return -1L;
+        }
+        try {
+            return Long.valueOf(partes[1]);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
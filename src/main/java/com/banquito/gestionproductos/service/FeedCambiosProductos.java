@@ -0,0 +1,258 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.CambioProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.event.ProductosActualizadosEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Feed de cambios de productos por Server-Sent Events, en reemplazo del sondeo de GET /productos.
+ * Cada modificación confirmada genera un evento "cambio" (o "eliminado") con un id correlativo.
+ *
+ * Los últimos eventos se guardan en un historial circular: un cliente que se reconecta con
+ * Last-Event-ID recibe lo que se perdió. Cada suscriptor tiene una cola acotada que se vacía en su
+ * propio hilo virtual, así un cliente lento no frena al que publica ni a los demás. Si la cola se
+ * llena, o el id pedido ya no está en el historial, se descartan los pendientes y se envía un
+ * evento "resync": el cliente debe recargar el catálogo por GET y seguir aplicando los eventos
+ * siguientes.
+ *
+ * Los listeners posteriores al commit de dos transacciones sobre el mismo producto pueden correr en
+ * cualquier orden: el feed recuerda la última versión publicada de cada producto y descarta el cambio
+ * que llega con una versión igual o menor, que ya quedó superado por el publicado.
+ *
+ * Una actualización masiva no genera un evento por producto: ocupa un id en el historial y todos los
+ * suscriptores reciben "resync", igual que quien se reanude desde antes de ella.
+ *
+ * Los ids empiezan en 1 en cada arranque; un Last-Event-ID mayor al último publicado también
+ * provoca "resync".
+ */
+@Component
+public class FeedCambiosProductos {
+
+    private final ReentrantLock candado = new ReentrantLock();
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final ExecutorService envios = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Última versión publicada por producto, solo con el candado tomado; Long.MAX_VALUE para los eliminados
+    private final Map<Integer, Long> versionesPublicadas = new HashMap<>();
+    private final EventoCambio[] historial;
+    private final int capacidadSuscriptor;
+    private long ultimoId;
+
+    public FeedCambiosProductos(@Value("${productos.cambios.historial:1024}") int capacidadHistorial,
+                                @Value("${productos.cambios.buffer-suscriptor:1024}") int capacidadSuscriptor) {
+        this.historial = new EventoCambio[capacidadHistorial];
+        this.capacidadSuscriptor = capacidadSuscriptor;
+    }
+
+    // Antes de detener Tomcat: el apagado ordenado espera a que terminen las peticiones y las conexiones
+    // SSE no terminan por sí solas
+    @EventListener(ContextClosedEvent.class)
+    public void cerrarSuscripciones() {
+        suscriptores.forEach(s -> s.emisor.complete());
+        suscriptores.clear();
+    }
+
+    @PreDestroy
+    public void detener() {
+        envios.shutdownNow();
+    }
+
+    /**
+     * @param desdeId último id recibido por el cliente, o null para recibir solo los cambios nuevos
+     */
+    public SseEmitter suscribir(Long desdeId) {
+        SseEmitter emisor = new SseEmitter();
+        Suscriptor suscriptor = new Suscriptor(emisor, capacidadSuscriptor);
+        emisor.onCompletion(() -> suscriptores.remove(suscriptor));
+        emisor.onTimeout(() -> suscriptores.remove(suscriptor));
+        emisor.onError(e -> suscriptores.remove(suscriptor));
+
+        // Bajo el mismo candado que la publicación: la reposición y los eventos nuevos no se solapan ni dejan huecos
+        candado.lock();
+        try {
+            if (desdeId != null) {
+                long masAntiguo = Math.max(1, ultimoId - historial.length + 1);
+                if (desdeId > ultimoId || desdeId + 1 < masAntiguo) {
+                    suscriptor.pedirResincronizacion(ultimoId);
+                } else {
+                    for (long id = desdeId + 1; id <= ultimoId; id++) {
+                        EventoCambio evento = historial[posicion(id)];
+                        if (evento == null) {
+                            suscriptor.pedirResincronizacion(ultimoId);
+                            break;
+                        }
+                        suscriptor.encolar(evento);
+                    }
+                }
+            }
+            suscriptores.add(suscriptor);
+        } finally {
+            candado.unlock();
+        }
+        programarEnvio(suscriptor);
+        return emisor;
+    }
+
+    public int suscriptoresActivos() {
+        return suscriptores.size();
+    }
+
+    public long ultimoId() {
+        candado.lock();
+        try {
+            return ultimoId;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void alModificarProducto(ProductoModificadoEvent evento) {
+        Producto producto = evento.producto();
+        CambioProducto cambio = evento.eliminado()
+                ? new CambioProducto(evento.idProducto(), null, null, null, null)
+                : new CambioProducto(evento.idProducto(), producto.getStockActual(), producto.getEstadoProducto(),
+                                     producto.getPrecioVenta(), producto.getVersion());
+
+        candado.lock();
+        try {
+            Long publicada = versionesPublicadas.get(evento.idProducto());
+            if (!evento.eliminado() && publicada != null && producto.getVersion() != null
+                    && producto.getVersion() <= publicada) {
+                return;
+            }
+            versionesPublicadas.put(evento.idProducto(), evento.eliminado() ? Long.MAX_VALUE : producto.getVersion());
+            EventoCambio publicado = new EventoCambio(++ultimoId, evento.eliminado() ? "eliminado" : "cambio", cambio);
+            historial[posicion(publicado.id)] = publicado;
+            for (Suscriptor suscriptor : suscriptores) {
+                suscriptor.encolar(publicado);
+            }
+        } finally {
+            candado.unlock();
+        }
+        suscriptores.forEach(this::programarEnvio);
+    }
+
+    @TransactionalEventListener
+    public void alActualizarProductos(ProductosActualizadosEvent evento) {
+        candado.lock();
+        try {
+            long id = ++ultimoId;
+            historial[posicion(id)] = null;
+            for (Suscriptor suscriptor : suscriptores) {
+                suscriptor.pedirResincronizacion(id);
+            }
+        } finally {
+            candado.unlock();
+        }
+        suscriptores.forEach(this::programarEnvio);
+    }
+
+    // Mantiene viva la conexión a través de proxies y detecta los clientes que se desconectaron
+    @Scheduled(fixedDelayString = "${productos.cambios.latido-ms:15000}")
+    public void enviarLatido() {
+        for (Suscriptor suscriptor : suscriptores) {
+            try {
+                suscriptor.emisor.send(SseEmitter.event().comment("latido"));
+            } catch (IOException | IllegalStateException e) {
+                descartar(suscriptor);
+            }
+        }
+    }
+
+    private int posicion(long id) {
+        return (int) (id % historial.length);
+    }
+
+    private void programarEnvio(Suscriptor suscriptor) {
+        if (suscriptor.tienePendientes() && suscriptor.enviando.compareAndSet(false, true)) {
+            envios.execute(() -> enviarPendientes(suscriptor));
+        }
+    }
+
+    private void enviarPendientes(Suscriptor suscriptor) {
+        try {
+            do {
+                long resincronizarDesde = suscriptor.resincronizarDesde.getAndSet(-1);
+                if (resincronizarDesde >= 0) {
+                    suscriptor.emisor.send(SseEmitter.event().id(Long.toString(resincronizarDesde))
+                            .name("resync").data("", MediaType.TEXT_PLAIN));
+                }
+                EventoCambio evento;
+                while (suscriptor.resincronizarDesde.get() < 0 && (evento = suscriptor.pendientes.poll()) != null) {
+                    suscriptor.emisor.send(SseEmitter.event().id(Long.toString(evento.id))
+                            .name(evento.tipo).data(evento.cambio, MediaType.APPLICATION_JSON));
+                }
+                suscriptor.enviando.set(false);
+                // Un evento encolado justo antes de liberar el turno se envía en esta misma pasada
+            } while (suscriptor.tienePendientes() && suscriptor.enviando.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException e) {
+            descartar(suscriptor);
+        }
+    }
+
+    private void descartar(Suscriptor suscriptor) {
+        suscriptores.remove(suscriptor);
+        suscriptor.pendientes.clear();
+        // Una desconexión es el final normal de un feed: complete() no la registra como error de la petición
+        suscriptor.emisor.complete();
+    }
+
+    private record EventoCambio(long id, String tipo, CambioProducto cambio) {
+    }
+
+    private static final class Suscriptor {
+
+        private final SseEmitter emisor;
+        private final BlockingQueue<EventoCambio> pendientes;
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        // Id hasta el que el cliente debe recargar; -1 mientras no haya que resincronizar
+        private final AtomicLong resincronizarDesde = new AtomicLong(-1);
+
+        private Suscriptor(SseEmitter emisor, int capacidad) {
+            this.emisor = emisor;
+            this.pendientes = new ArrayBlockingQueue<>(capacidad);
+        }
+
+        // Solo se llama con el candado del feed tomado
+        private void encolar(EventoCambio evento) {
+            if (resincronizarDesde.get() >= 0) {
+                resincronizarDesde.set(evento.id);
+            } else if (!pendientes.offer(evento)) {
+                pedirResincronizacion(evento.id);
+            }
+        }
+
+        private void pedirResincronizacion(long hastaId) {
+            pendientes.clear();
+            resincronizarDesde.set(hastaId);
+        }
+
+        private boolean tienePendientes() {
+            return resincronizarDesde.get() >= 0 || !pendientes.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.ResultadoImportacion;
+import com.banquito.gestionproductos.dto.ResultadoImportacion.ErrorImportacion;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de productos desde CSV o JSON. La entrada se lee de forma incremental
+ * y se procesa por bloques: los nombres duplicados se validan por conjuntos, las categorías
+ * contra el registro en memoria y las filas válidas se insertan con lotes JDBC, una
+ * transacción por bloque.
+ */
+@Service
+public class ImportacionProductoService {
+
+    private static final int TAMANIO_BLOQUE = 1000;
+    private static final int ERRORES_MAXIMOS = 1000;
+
+    // Sin pedir las claves generadas, el driver puede agrupar los INSERT aunque id_producto sea IDENTITY
+    private static final String INSERTAR_PRODUCTO =
+            "INSERT INTO productos (nombre_producto, descripcion, precio_venta, costo_compra, stock_actual, " +
+            "estado_producto, id_categoria) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final List<String> COLUMNAS_OBLIGATORIAS =
+            List.of("nombreProducto", "precioVenta", "stockActual", "idCategoria");
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private RegistroCategorias registroCategorias;
+
+    @Autowired
+    private LibroMovimientosStock libroMovimientosStock;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public ResultadoImportacion importarCsv(InputStream entrada) throws IOException {
+        Importacion importacion = new Importacion();
+        BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+
+        String cabecera = lector.readLine();
+        if (cabecera == null) {
+            throw new RuntimeException("El archivo CSV está vacío");
+        }
+
+        Map<String, Integer> columnas = new HashMap<>();
+        List<String> nombresColumnas = separarCampos(cabecera.replace("\uFEFF", ""));
+        for (int i = 0; i < nombresColumnas.size(); i++) {
+            columnas.put(nombresColumnas.get(i).trim(), i);
+        }
+        for (String columna : COLUMNAS_OBLIGATORIAS) {
+            if (!columnas.containsKey(columna)) {
+                throw new RuntimeException("Falta la columna obligatoria: " + columna);
+            }
+        }
+
+        String linea;
+        while ((linea = lector.readLine()) != null) {
+            if (linea.isBlank()) {
+                continue;
+            }
+            long fila = ++importacion.filasLeidas;
+            try {
+                importacion.agregar(fila, productoDesdeCsv(separarCampos(linea), columnas));
+            } catch (RuntimeException e) {
+                importacion.registrarError(fila, "Fila inválida: " + e.getMessage());
+            }
+        }
+
+        return importacion.finalizar();
+    }
+
+    public ResultadoImportacion importarJson(InputStream entrada) throws IOException {
+        Importacion importacion = new Importacion();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(entrada)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new RuntimeException("Se esperaba un arreglo JSON de productos");
+            }
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        importacion.registrarError(importacion.filasLeidas + 1, "El arreglo JSON no está cerrado");
+                        break;
+                    }
+                    long fila = ++importacion.filasLeidas;
+                    if (token != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        importacion.registrarError(fila, "Fila inválida: se esperaba un objeto JSON");
+                        continue;
+                    }
+                    // Se lee el objeto completo como árbol para que un error de conversión no desincronice el parser
+                    JsonNode nodo = parser.readValueAsTree();
+                    try {
+                        importacion.agregar(fila, objectMapper.treeToValue(nodo, Producto.class));
+                    } catch (IOException | RuntimeException e) {
+                        importacion.registrarError(fila, "Fila inválida: " + e.getMessage());
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                // JSON mal formado: no se puede seguir leyendo, pero lo ya leído se importa y el error se reporta
+                importacion.registrarError(importacion.filasLeidas + 1, "JSON mal formado: " + e.getOriginalMessage());
+            }
+        }
+
+        return importacion.finalizar();
+    }
+
+    private Producto productoDesdeCsv(List<String> campos, Map<String, Integer> columnas) {
+        Producto producto = new Producto();
+        producto.setNombreProducto(campo(campos, columnas, "nombreProducto"));
+        producto.setDescripcion(campo(campos, columnas, "descripcion"));
+        String precioVenta = campo(campos, columnas, "precioVenta");
+        producto.setPrecioVenta(precioVenta == null ? null : new BigDecimal(precioVenta));
+        String costoCompra = campo(campos, columnas, "costoCompra");
+        producto.setCostoCompra(costoCompra == null ? null : new BigDecimal(costoCompra));
+        String stockActual = campo(campos, columnas, "stockActual");
+        producto.setStockActual(stockActual == null ? null : Integer.valueOf(stockActual));
+        producto.setEstadoProducto(campo(campos, columnas, "estadoProducto"));
+
+        String idCategoria = campo(campos, columnas, "idCategoria");
+        if (idCategoria != null) {
+            CategoriaProducto categoria = new CategoriaProducto();
+            categoria.setIdCategoria(Integer.valueOf(idCategoria));
+            producto.setCategoria(categoria);
+        }
+        return producto;
+    }
+
+    private String campo(List<String> campos, Map<String, Integer> columnas, String nombre) {
+        Integer indice = columnas.get(nombre);
+        if (indice == null || indice >= campos.size()) {
+            return null;
+        }
+        String valor = campos.get(indice).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    // Separa una línea CSV respetando comillas dobles ("" representa una comilla dentro del campo)
+    private List<String> separarCampos(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+
+    /**
+     * Estado de una importación en curso: bloque pendiente, nombres ya vistos en el archivo y errores.
+     */
+    private class Importacion {
+
+        private final Set<String> nombresEnArchivo = new HashSet<>();
+        private final List<Long> filasBloque = new ArrayList<>(TAMANIO_BLOQUE);
+        private final List<Producto> bloque = new ArrayList<>(TAMANIO_BLOQUE);
+        private final List<ErrorImportacion> errores = new ArrayList<>();
+
+        private long filasLeidas;
+        private long filasInsertadas;
+        private long filasConError;
+
+        void agregar(long fila, Producto producto) {
+            if (producto.getEstadoProducto() == null || producto.getEstadoProducto().isEmpty()) {
+                producto.setEstadoProducto("Activo");
+            }
+
+            Set<ConstraintViolation<Producto>> violaciones = validator.validate(producto);
+            if (!violaciones.isEmpty()) {
+                registrarError(fila, violaciones.iterator().next().getMessage());
+                return;
+            }
+            if (producto.getCategoria() == null || producto.getCategoria().getIdCategoria() == null) {
+                registrarError(fila, "La categoría es obligatoria para crear un producto");
+                return;
+            }
+            if (!registroCategorias.existe(producto.getCategoria().getIdCategoria())) {
+                registrarError(fila, "No se encontró la categoría con ID: " + producto.getCategoria().getIdCategoria());
+                return;
+            }
+            if (!nombresEnArchivo.add(producto.getNombreProducto())) {
+                registrarError(fila, "Nombre de producto repetido en el archivo: " + producto.getNombreProducto());
+                return;
+            }
+
+            filasBloque.add(fila);
+            bloque.add(producto);
+            if (bloque.size() >= TAMANIO_BLOQUE) {
+                procesarBloque();
+            }
+        }
+
+        void registrarError(long fila, String mensaje) {
+            filasConError++;
+            if (errores.size() < ERRORES_MAXIMOS) {
+                errores.add(new ErrorImportacion(fila, mensaje));
+            }
+        }
+
+        ResultadoImportacion finalizar() {
+            procesarBloque();
+            return new ResultadoImportacion(filasLeidas, filasInsertadas, filasConError, errores);
+        }
+
+        private void procesarBloque() {
+            if (bloque.isEmpty()) {
+                return;
+            }
+
+            Set<String> nombres = bloque.stream().map(Producto::getNombreProducto).collect(Collectors.toSet());
+            Set<String> existentes = new HashSet<>(productoRepository.findNombresExistentes(nombres));
+
+            List<Producto> nuevos = new ArrayList<>(bloque.size());
+            List<Long> filasNuevas = new ArrayList<>(bloque.size());
+            for (int i = 0; i < bloque.size(); i++) {
+                Producto producto = bloque.get(i);
+                if (existentes.contains(producto.getNombreProducto())) {
+                    registrarError(filasBloque.get(i), "Ya existe un producto con el nombre: " + producto.getNombreProducto());
+                } else {
+                    nuevos.add(producto);
+                    filasNuevas.add(filasBloque.get(i));
+                }
+            }
+
+            try {
+                insertarEnTransaccion(nuevos);
+            } catch (DataAccessException e) {
+                // Una fila rechazada por la base revierte el bloque entero: se reintenta fila por fila
+                // para insertar las válidas y reportar solo las que fallan
+                for (int i = 0; i < nuevos.size(); i++) {
+                    try {
+                        insertarEnTransaccion(List.of(nuevos.get(i)));
+                    } catch (DataAccessException errorFila) {
+                        registrarError(filasNuevas.get(i), "Error al insertar la fila: " +
+                                errorFila.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+
+            bloque.clear();
+            filasBloque.clear();
+        }
+
+        private void insertarEnTransaccion(List<Producto> productos) {
+            if (productos.isEmpty()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(estado -> {
+                insertar(productos);
+                publicarInsertados(productos);
+            });
+            filasInsertadas += productos.size();
+        }
+
+        // Los INSERT por lotes no devuelven los ids; se recuperan con una consulta por bloque para
+        // registrar el alta en el libro de movimientos y notificar a la caché y al índice de búsqueda. Si
+        // otra petición insertó el mismo nombre entre la validación y el INSERT, la consulta devuelve más de
+        // un id para ese nombre: esas filas se leen de la base para que cada evento lleve su propio producto
+        private void publicarInsertados(List<Producto> productos) {
+            Map<String, Producto> porNombre = new HashMap<>();
+            for (Producto producto : productos) {
+                porNombre.put(producto.getNombreProducto(), producto);
+            }
+            Map<String, List<Integer>> idsPorNombre = new HashMap<>();
+            for (Object[] fila : productoRepository.findIdsPorNombre(porNombre.keySet())) {
+                idsPorNombre.computeIfAbsent((String) fila[1], n -> new ArrayList<>()).add((Integer) fila[0]);
+            }
+
+            List<Integer> ambiguos = new ArrayList<>();
+            idsPorNombre.forEach((nombre, ids) -> {
+                if (ids.size() == 1) {
+                    Producto producto = porNombre.get(nombre);
+                    producto.setIdProducto(ids.get(0));
+                    // El INSERT no envía la versión: la fila toma el valor por defecto de la columna
+                    producto.setVersion(0L);
+                    libroMovimientosStock.registrarAlta(producto.getIdProducto(), producto.getStockActual());
+                    eventPublisher.publishEvent(new ProductoModificadoEvent(producto.getIdProducto(), producto));
+                } else {
+                    ambiguos.addAll(ids);
+                }
+            });
+            // Sin alta: no se sabe cuál de las filas insertó esta importación, y la otra petición pudo registrarla
+            for (Producto producto : productoRepository.findAllById(ambiguos)) {
+                eventPublisher.publishEvent(new ProductoModificadoEvent(producto.getIdProducto(), producto));
+            }
+        }
+
+        private void insertar(List<Producto> productos) {
+            jdbcTemplate.batchUpdate(INSERTAR_PRODUCTO, productos, productos.size(), (ps, producto) -> {
+                ps.setString(1, producto.getNombreProducto());
+                ps.setString(2, producto.getDescripcion());
+                ps.setBigDecimal(3, producto.getPrecioVenta());
+                if (producto.getCostoCompra() != null) {
+                    ps.setBigDecimal(4, producto.getCostoCompra());
+                } else {
+                    ps.setNull(4, Types.NUMERIC);
+                }
+                ps.setInt(5, producto.getStockActual());
+                ps.setString(6, producto.getEstadoProducto());
+                ps.setInt(7, producto.getCategoria().getIdCategoria());
+            });
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Índice invertido de trigramas sobre nombreProducto y descripcion. Resuelve búsquedas por
+ * subcadena y prefijo en memoria: intersecta las listas de los trigramas del texto buscado y
+ * verifica cada candidato, sin recorrer la tabla con LIKE '%texto%'.
+ *
+ * Se construye al iniciar y se actualiza con cada ProductoModificadoEvent confirmado. Los listeners
+ * de dos transacciones sobre el mismo producto pueden correr en cualquier orden: cada documento
+ * guarda la versión del producto y no se reemplaza por uno de una versión igual o anterior.
+ *
+ * Los ids eliminados se recuerdan durante productos.busqueda.retencion-eliminados, mucho más que lo
+ * que tarda en correr el listener de una transacción ya confirmada, y después se depuran. Pasado ese
+ * plazo, una modificación (versión mayor a 0) de un id que el índice no conoce se indexa solo si el
+ * producto sigue en la base.
+ */
+@Component
+public class IndiceBusquedaProductos {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+
+    private final Map<Integer, Documento> documentos = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> indice = new ConcurrentHashMap<>();
+    // Los ids no se reutilizan: un cambio que llega después de la eliminación no vuelve a indexar el producto.
+    // Valor: instante de la eliminación en nanos
+    private final Map<Integer, Long> eliminados = new ConcurrentHashMap<>();
+
+    @Value("${productos.busqueda.retencion-eliminados:10m}")
+    private Duration retencionEliminados;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    public void reconstruir() {
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        lectura.executeWithoutResult(estado -> {
+            try (Stream<ProductoResumen> productos = productoRepository.streamCatalogo()) {
+                productos.forEach(p -> indexar(p.idProducto(), p.nombreProducto(), p.descripcion(), p.version()));
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public void alModificarProducto(ProductoModificadoEvent evento) {
+        if (evento.eliminado()) {
+            eliminar(evento.idProducto());
+        } else {
+            Producto producto = evento.producto();
+            if (esDeUnEliminadoDepurado(producto)) {
+                return;
+            }
+            indexar(producto.getIdProducto(), producto.getNombreProducto(), producto.getDescripcion(),
+                    producto.getVersion());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${productos.busqueda.depuracion-ms:60000}")
+    public void depurarEliminados() {
+        depurarEliminados(retencionEliminados);
+    }
+
+    void depurarEliminados(Duration retencion) {
+        long limite = System.nanoTime() - retencion.toNanos();
+        eliminados.values().removeIf(eliminado -> eliminado - limite <= 0);
+    }
+
+    /**
+     * Devuelve los ids de los productos cuyo nombre o descripción contienen el texto, ordenados
+     * por relevancia: nombre exacto, nombre que empieza con el texto, palabra del nombre que
+     * empieza con el texto, nombre que lo contiene y, por último, coincidencia en la descripción.
+     */
+    public List<Integer> buscar(String texto, int limite) {
+        String consulta = normalizar(texto).trim();
+        if (consulta.isEmpty()) {
+            return List.of();
+        }
+
+        List<Coincidencia> coincidencias = new ArrayList<>();
+        for (Integer id : candidatos(consulta)) {
+            Documento documento = documentos.get(id);
+            if (documento == null) {
+                continue;
+            }
+            int puntaje = documento.puntaje(consulta);
+            if (puntaje >= 0) {
+                coincidencias.add(new Coincidencia(id, puntaje, documento.nombre().length()));
+            }
+        }
+
+        coincidencias.sort(Comparator.comparingInt(Coincidencia::puntaje)
+                .thenComparingInt(Coincidencia::largoNombre)
+                .thenComparing(Coincidencia::idProducto));
+
+        return coincidencias.stream()
+                .limit(limite)
+                .map(Coincidencia::idProducto)
+                .toList();
+    }
+
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinAcentos.toLowerCase(Locale.ROOT);
+    }
+
+    // Textos de menos de tres caracteres no tienen trigramas: se verifican todos los documentos
+    private Collection<Integer> candidatos(String consulta) {
+        if (consulta.length() < 3) {
+            return documentos.keySet();
+        }
+
+        List<Set<Integer>> listas = new ArrayList<>();
+        for (String trigrama : trigramas(consulta)) {
+            Set<Integer> lista = indice.get(trigrama);
+            if (lista == null) {
+                return List.of();
+            }
+            listas.add(lista);
+        }
+        listas.sort(Comparator.comparingInt(Set::size));
+
+        Set<Integer> resultado = new HashSet<>(listas.get(0));
+        for (int i = 1; i < listas.size() && !resultado.isEmpty(); i++) {
+            resultado.retainAll(listas.get(i));
+        }
+        return resultado;
+    }
+
+    // El alta (versión 0) de un id desconocido es un producto nuevo; una modificación solo puede ser de uno
+    // que se eliminó y cuya marca ya se depuró, o de un alta cuyo listener aún no corrió
+    private boolean esDeUnEliminadoDepurado(Producto producto) {
+        Integer id = producto.getIdProducto();
+        return producto.getVersion() != null && producto.getVersion() > 0 && !documentos.containsKey(id)
+                && !eliminados.containsKey(id) && !productoRepository.existsById(id);
+    }
+
+    private synchronized void indexar(Integer id, String nombre, String descripcion, Long version) {
+        Documento anterior = documentos.get(id);
+        if (eliminados.containsKey(id) || (anterior != null && !anterior.esAnteriorA(version))) {
+            return;
+        }
+        Documento nuevo = new Documento(normalizar(nombre), normalizar(descripcion), version);
+        if (anterior != null && anterior.mismoTexto(nuevo)) {
+            documentos.put(id, nuevo);
+            return;
+        }
+
+        Set<String> trigramasNuevos = nuevo.trigramas();
+        if (anterior != null) {
+            for (String trigrama : anterior.trigramas()) {
+                if (!trigramasNuevos.contains(trigrama)) {
+                    quitarDeLista(trigrama, id);
+                }
+            }
+        }
+        for (String trigrama : trigramasNuevos) {
+            indice.computeIfAbsent(trigrama, t -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        documentos.put(id, nuevo);
+    }
+
+    private synchronized void eliminar(Integer id) {
+        eliminados.put(id, System.nanoTime());
+        Documento anterior = documentos.remove(id);
+        if (anterior != null) {
+            for (String trigrama : anterior.trigramas()) {
+                quitarDeLista(trigrama, id);
+            }
+        }
+    }
+
+    private void quitarDeLista(String trigrama, Integer id) {
+        Set<Integer> lista = indice.get(trigrama);
+        if (lista != null) {
+            lista.remove(id);
+            if (lista.isEmpty()) {
+                indice.remove(trigrama, lista);
+            }
+        }
+    }
+
+    private static Set<String> trigramas(String texto) {
+        Set<String> trigramas = new HashSet<>();
+        for (int i = 0; i + 3 <= texto.length(); i++) {
+            trigramas.add(texto.substring(i, i + 3));
+        }
+        return trigramas;
+    }
+
+    private record Documento(String nombre, String descripcion, Long version) {
+
+        // Sin versión (un producto que aún no pasó por la base) no hay con qué ordenar: se reemplaza
+        boolean esAnteriorA(Long otra) {
+            return version == null || otra == null || version < otra;
+        }
+
+        boolean mismoTexto(Documento otro) {
+            return nombre.equals(otro.nombre) && descripcion.equals(otro.descripcion);
+        }
+
+        Set<String> trigramas() {
+            Set<String> trigramas = IndiceBusquedaProductos.trigramas(nombre);
+            trigramas.addAll(IndiceBusquedaProductos.trigramas(descripcion));
+            return trigramas;
+        }
+
+        int puntaje(String consulta) {
+            if (nombre.equals(consulta)) {
+                return 0;
+            }
+            if (nombre.startsWith(consulta)) {
+                return 1;
+            }
+            int posicion = nombre.indexOf(consulta);
+            if (posicion > 0 && !Character.isLetterOrDigit(nombre.charAt(posicion - 1))) {
+                return 2;
+            }
+            if (posicion > 0) {
+                return 3;
+            }
+            return descripcion.contains(consulta) ? 4 : -1;
+        }
+    }
+
+    private record Coincidencia(Integer idProducto, int puntaje, int largoNombre) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.event.CategoriaModificadaEvent;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.event.ProductosActualizadosEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Invalida la caché de productos después del commit, para que una lectura concurrente
+ * no vuelva a cachear el estado anterior a la modificación.
+ *
+ * Con réplicas de lectura, otro cliente puede volver a llenar la caché desde una réplica que aún no
+ * recibió el cambio. Por eso se invalida otra vez al terminar la ventana de lectura propia
+ * (productos.replicas.lectura-propia), cuando la réplica ya debería tenerlo.
+ */
+@Component
+public class InvalidacionCacheProductos {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${productos.replicas.habilitadas:false}")
+    private boolean replicasHabilitadas;
+
+    @Value("${productos.replicas.lectura-propia:0s}")
+    private Duration ventanaLecturaPropia;
+
+    @TransactionalEventListener
+    public void alModificarProducto(ProductoModificadoEvent evento) {
+        Cache cache = cacheManager.getCache(ProductoService.CACHE_PRODUCTOS);
+        if (cache != null) {
+            cache.evict(evento.idProducto());
+            repetirAlCerrarVentana(() -> cache.evict(evento.idProducto()));
+        }
+    }
+
+    // Los resúmenes cacheados incluyen el nombre de la categoría; los cambios de categoría son raros y se vacía todo
+    @TransactionalEventListener
+    public void alModificarCategoria(CategoriaModificadaEvent evento) {
+        vaciar();
+    }
+
+    // Una actualización masiva no informa qué filas cambió
+    @TransactionalEventListener
+    public void alActualizarProductos(ProductosActualizadosEvent evento) {
+        vaciar();
+    }
+
+    private void vaciar() {
+        Cache cache = cacheManager.getCache(ProductoService.CACHE_PRODUCTOS);
+        if (cache != null) {
+            cache.clear();
+            repetirAlCerrarVentana(cache::clear);
+        }
+    }
+
+    private void repetirAlCerrarVentana(Runnable invalidacion) {
+        if (replicasHabilitadas && !ventanaLecturaPropia.isZero()) {
+            taskScheduler.schedule(invalidacion, Instant.now().plus(ventanaLecturaPropia));
+        }
+    }
+}
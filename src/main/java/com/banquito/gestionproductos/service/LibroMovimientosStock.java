@@ -0,0 +1,258 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.StockProducto;
+import com.banquito.gestionproductos.entity.MovimientoStock;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.repository.MovimientoStockRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Libro de movimientos de stock de solo inserción. Una venta o reposición registrada aquí es un
+ * INSERT en movimientos_stock y no actualiza la fila del producto, así que los productos muy
+ * vendidos no compiten por el bloqueo de su fila.
+ *
+ * El stock actual es el valor consolidado en productos.stock_actual más los movimientos pendientes.
+ * La suma pendiente por producto se mantiene en memoria (se reconstruye desde la base al iniciar)
+ * y la tarea de compactación la traslada periódicamente a productos. Un candado por franja de ids
+ * serializa el registro y la compactación del mismo producto, lo que supone una sola instancia de
+ * la aplicación, igual que el resto de índices en memoria.
+ *
+ * Los movimientos de los demás caminos (alta, importación, aumentarStock/disminuirStock, PUT) se
+ * guardan ya aplicados, como historial. Las ventas que actualizan productos en el lugar se anotan
+ * aquí, bajo el mismo candado, antes de su UPDATE (anotarVentaEnLugar): reciben las salidas
+ * pendientes del libro para restarlas en su condición, y el libro descuenta sus unidades como "en
+ * curso" hasta que su transacción termina. Así ninguno de los dos caminos vende lo que el otro ya
+ * vendió, sin que el libro tenga que bloquear la fila del producto.
+ */
+@Component
+public class LibroMovimientosStock {
+
+    private static final Logger log = LoggerFactory.getLogger(LibroMovimientosStock.class);
+
+    private static final int FRANJAS = 64;
+
+    private final Map<Integer, Long> pendientes = new ConcurrentHashMap<>();
+    // Ventas en el lugar anotadas cuya transacción aún no termina
+    private final Map<Integer, Long> enCurso = new ConcurrentHashMap<>();
+    private final ReentrantLock[] candados = new ReentrantLock[FRANJAS];
+
+    @Autowired
+    private MovimientoStockRepository movimientoStockRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private MetricasProductos metricasProductos;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private TransactionTemplate transaccion;
+
+    @PostConstruct
+    public void cargar() {
+        for (int i = 0; i < FRANJAS; i++) {
+            candados[i] = new ReentrantLock();
+        }
+        // Transacción propia aunque el llamador tenga una abierta: debe confirmar antes de soltar el candado
+        transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        lectura.executeWithoutResult(estado -> {
+            for (Object[] fila : movimientoStockRepository.sumarPendientesPorProducto()) {
+                pendientes.put((Integer) fila[0], ((Number) fila[1]).longValue());
+            }
+        });
+    }
+
+    public MovimientoStock registrar(Integer idProducto, Integer cantidad) {
+        return registrar(idProducto, cantidad, 0);
+    }
+
+    // retenidas: unidades reservadas o confirmadas en el motor de reservas, que una salida no puede tomar
+    public MovimientoStock registrar(Integer idProducto, Integer cantidad, int retenidas) {
+        if (cantidad == null || cantidad == 0) {
+            throw new RuntimeException("La cantidad debe ser distinta de 0");
+        }
+
+        ReentrantLock candado = candado(idProducto);
+        candado.lock();
+        try {
+            long pendiente = pendientes.getOrDefault(idProducto, 0L);
+            // Antes que el stock consolidado: una venta en el lugar que confirma entre ambas lecturas ya está
+            // en el consolidado o todavía en curso, nunca en ninguno de los dos
+            long ventasEnCurso = enCurso.getOrDefault(idProducto, 0L);
+            MovimientoStock movimiento = transaccion.execute(estado -> {
+                Integer stockConsolidado = productoRepository.findStockActualById(idProducto)
+                        .orElseThrow(() -> new RuntimeException("No se encontró el producto con ID: " + idProducto));
+
+                long stockActual = stockConsolidado + pendiente - ventasEnCurso;
+                if (cantidad < 0 && stockActual - retenidas + cantidad < 0) {
+                    throw new RuntimeException("Stock insuficiente. Stock actual: " + (stockActual - retenidas) +
+                                             ", cantidad solicitada: " + -cantidad);
+                }
+
+                if (cantidad > 0) {
+                    metricasProductos.registrarEntrada(cantidad);
+                } else {
+                    metricasProductos.registrarSalida(-cantidad, stockActual + cantidad == 0);
+                }
+                return movimientoStockRepository.save(new MovimientoStock(idProducto, cantidad, LocalDateTime.now(), false));
+            });
+            pendientes.put(idProducto, pendiente + cantidad);
+            return movimiento;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    // Primer movimiento de un producto nuevo, aunque empiece sin stock: desde aquí se puede reconstruir su historial
+    public void registrarAlta(Integer idProducto, int stockInicial) {
+        movimientoStockRepository.save(new MovimientoStock(idProducto, stockInicial, LocalDateTime.now(), true));
+    }
+
+    // Historial de un movimiento que ya se aplicó sobre productos; se guarda en la transacción del llamador
+    public void registrarAplicado(Integer idProducto, int cantidad) {
+        if (cantidad != 0) {
+            movimientoStockRepository.save(new MovimientoStock(idProducto, cantidad, LocalDateTime.now(), true));
+        }
+    }
+
+    /**
+     * Anota una venta que el llamador va a aplicar con un UPDATE sobre productos dentro de su transacción.
+     * Devuelve las salidas pendientes del libro, que el UPDATE debe restar en su condición; hasta que la
+     * transacción termine, el libro tampoco vende las {@code cantidad} unidades anotadas.
+     */
+    public int anotarVentaEnLugar(Integer idProducto, int cantidad) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("La venta en el lugar debe anotarse dentro de una transacción");
+        }
+        ReentrantLock candado = candado(idProducto);
+        candado.lock();
+        try {
+            enCurso.merge(idProducto, (long) cantidad, Long::sum);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    enCurso.computeIfPresent(idProducto, (id, unidades) -> unidades == cantidad ? null : unidades - cantidad);
+                }
+            });
+            return salidasPendientes(idProducto);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Unidades vendidas en el libro que aún no se restan de productos.stock_actual (0 si lo pendiente es
+     * una entrada neta).
+     */
+    public int salidasPendientes(Integer idProducto) {
+        long pendiente = pendientes.getOrDefault(idProducto, 0L);
+        return pendiente < 0 ? Math.toIntExact(-pendiente) : 0;
+    }
+
+    public StockProducto obtenerStock(Integer idProducto) {
+        ReentrantLock candado = candado(idProducto);
+        candado.lock();
+        try {
+            Integer stockConsolidado = productoRepository.findStockActualById(idProducto)
+                    .orElseThrow(() -> new RuntimeException("No se encontró el producto con ID: " + idProducto));
+            return new StockProducto(idProducto, stockConsolidado + pendientes.getOrDefault(idProducto, 0L), null);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Stock en un instante pasado: el actual menos todo lo que se movió después de esa fecha. Solo se puede
+     * reconstruir desde el primer movimiento del producto: para los productos anteriores al libro, o
+     * importados y sin movimientos, una fecha previa se rechaza en lugar de devolver un valor inventado.
+     */
+    public StockProducto obtenerStockEn(Integer idProducto, LocalDateTime fecha) {
+        long stockActual = obtenerStock(idProducto).stockActual();
+        LocalDateTime primerMovimiento = movimientoStockRepository.buscarPrimeraFecha(idProducto).orElse(null);
+        if (primerMovimiento == null || fecha.isBefore(primerMovimiento)) {
+            throw new RuntimeException("No hay historial de stock del producto con ID " + idProducto + " para " + fecha +
+                    (primerMovimiento == null ? "" : "; el primer movimiento registrado es de " + primerMovimiento));
+        }
+        long posteriores = movimientoStockRepository.sumarPosterioresA(idProducto, fecha);
+        return new StockProducto(idProducto, stockActual - posteriores, fecha);
+    }
+
+    @Scheduled(fixedDelayString = "${productos.stock.compactacion-ms:5000}")
+    public void compactar() {
+        for (Integer idProducto : List.copyOf(pendientes.keySet())) {
+            ReentrantLock candado = candado(idProducto);
+            candado.lock();
+            try {
+                long delta = pendientes.getOrDefault(idProducto, 0L);
+                if (Boolean.TRUE.equals(transaccion.execute(estado -> consolidar(idProducto, delta)))) {
+                    pendientes.remove(idProducto);
+                }
+            } catch (RuntimeException e) {
+                // Los movimientos siguen pendientes y se reintentan en la próxima compactación
+                log.error("No se pudo compactar el stock del producto {}", idProducto, e);
+            } finally {
+                candado.unlock();
+            }
+        }
+    }
+
+    private boolean consolidar(Integer idProducto, long delta) {
+        if (delta != 0) {
+            if (productoRepository.aplicarDeltaStock(idProducto, Math.toIntExact(delta)) > 0) {
+                // Antes que los listeners del evento: el stock que reciben ya incluye lo pendiente (MotorReservas)
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        pendientes.remove(idProducto);
+                    }
+                });
+                productoRepository.findById(idProducto)
+                        .ifPresent(p -> eventPublisher.publishEvent(new ProductoModificadoEvent(idProducto, p)));
+            } else {
+                Optional<Integer> stockConsolidado = productoRepository.findStockActualById(idProducto);
+                if (stockConsolidado.isPresent()) {
+                    // El stock se fijó por debajo de lo ya vendido (p. ej. con PUT /productos/{id}): no se consolida
+                    // en negativo, los movimientos quedan pendientes hasta que una reposición los cubra
+                    log.error("Compactación rechazada para el producto {}: stock consolidado {}, movimientos pendientes {}",
+                            idProducto, stockConsolidado.get(), delta);
+                    metricasProductos.registrarCompactacionRechazada();
+                    return false;
+                }
+            }
+        }
+        movimientoStockRepository.marcarAplicados(idProducto);
+        return true;
+    }
+
+    private ReentrantLock candado(Integer idProducto) {
+        return candados[Math.floorMod(idProducto, FRANJAS)];
+    }
+}
@@ -0,0 +1,102 @@
+package com.banquito.gestionproductos.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Métricas de dominio de productos: unidades que entran y salen del inventario, productos que
+ * pasan a 'Agotado' y filas devueltas por cada consulta de listado.
+ *
+ * Los movimientos de stock se cuentan solo cuando la transacción confirma, para que un lote
+ * revertido no infle los contadores.
+ */
+@Component
+public class MetricasProductos {
+
+    private final Map<String, DistributionSummary> filasPorOperacion = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter unidadesEntrada;
+    private Counter unidadesSalida;
+    private Counter productosAgotados;
+    private Counter compactacionesRechazadas;
+    private Counter volcadosRechazados;
+
+    @PostConstruct
+    public void registrar() {
+        unidadesEntrada = Counter.builder("productos.stock.unidades")
+                .description("Unidades que entran o salen del inventario")
+                .baseUnit("unidades")
+                .tag("movimiento", "entrada")
+                .register(meterRegistry);
+        unidadesSalida = Counter.builder("productos.stock.unidades")
+                .description("Unidades que entran o salen del inventario")
+                .baseUnit("unidades")
+                .tag("movimiento", "salida")
+                .register(meterRegistry);
+        productosAgotados = Counter.builder("productos.agotados")
+                .description("Productos que pasaron a estado Agotado por una venta")
+                .register(meterRegistry);
+        compactacionesRechazadas = Counter.builder("productos.stock.compactaciones.rechazadas")
+                .description("Compactaciones del libro de movimientos que dejarían el stock consolidado en negativo")
+                .register(meterRegistry);
+        volcadosRechazados = Counter.builder("productos.reservas.volcados.rechazados")
+                .description("Productos cuyas reservas confirmadas no cupieron en el stock al volcarlas")
+                .register(meterRegistry);
+    }
+
+    public void registrarEntrada(int cantidad) {
+        despuesDelCommit(() -> unidadesEntrada.increment(cantidad));
+    }
+
+    public void registrarSalida(int cantidad, boolean agotado) {
+        despuesDelCommit(() -> {
+            unidadesSalida.increment(cantidad);
+            if (agotado) {
+                productosAgotados.increment();
+            }
+        });
+    }
+
+    public void registrarCompactacionRechazada() {
+        compactacionesRechazadas.increment();
+    }
+
+    public void registrarVolcadoRechazado() {
+        volcadosRechazados.increment();
+    }
+
+    public void registrarFilas(String operacion, int filas) {
+        filasPorOperacion.computeIfAbsent(operacion, o -> DistributionSummary.builder("productos.consulta.filas")
+                        .description("Filas devueltas por cada consulta de listado")
+                        .baseUnit("filas")
+                        .tag("operacion", o)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(filas);
+    }
+
+    private void despuesDelCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,377 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.DisponibilidadProducto;
+import com.banquito.gestionproductos.dto.LineaMovimientoStock;
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.dto.Reserva;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Reservas de stock en memoria para carritos. Reservar y liberar no tocan la base de datos: cada
+ * producto tiene un AtomicLong con las unidades disponibles (32 bits altos) y reservadas (32 bits
+ * bajos) que se actualiza con compare-and-set, sin candados.
+ *
+ * Solo las reservas confirmadas llegan a productos, agrupadas en un lote JDBC por cada volcado. Lo
+ * reservado y lo confirmado sin volcar se descuentan del stock que pueden vender los demás caminos
+ * (unidadesRetenidas). Si aun así una línea no cabe al volcarla (stock fijado a mano, reservas hechas
+ * antes de que llegara el evento de una venta), la confirmación no se descarta: queda pendiente, se
+ * reintenta en cada volcado y se informa en la disponibilidad del producto y en la métrica
+ * productos.reservas.volcados.rechazados.
+ *
+ * Al iniciar, los contadores se reconcilian con productos.stock_actual menos las salidas pendientes
+ * del libro de movimientos; las reservas no confirmadas viven solo en memoria y se pierden (se
+ * liberan) con un reinicio. Los cambios de stock hechos por otros caminos llegan por
+ * ProductoModificadoEvent y recalculan lo disponible. Esos listeners pueden correr en cualquier
+ * orden: se guarda la versión de cada producto y se descarta el cambio con una versión anterior, y
+ * el de un producto ya eliminado.
+ */
+@Component
+public class MotorReservas {
+
+    private static final Logger log = LoggerFactory.getLogger(MotorReservas.class);
+
+    private static final int LINEAS_MAXIMAS = 100;
+    private static final String DISMINUIR_STOCK =
+            "UPDATE productos SET stock_actual = stock_actual - ?, version = version + 1, " +
+            "estado_producto = CASE WHEN stock_actual = ? THEN 'Agotado' ELSE estado_producto END " +
+            "WHERE id_producto = ? AND stock_actual - ? >= ?";
+
+    private final Map<Integer, AtomicLong> contadores = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> confirmadosPendientes = new ConcurrentHashMap<>();
+    // Versión del último stock aplicado a cada contador; Long.MAX_VALUE para los eliminados
+    private final Map<Integer, Long> versiones = new ConcurrentHashMap<>();
+    private final Map<String, ReservaActiva> reservas = new ConcurrentHashMap<>();
+    private final Set<Integer> volcadosRechazados = ConcurrentHashMap.newKeySet();
+    private final ScheduledThreadPoolExecutor expiraciones = new ScheduledThreadPoolExecutor(1);
+
+    @Value("${productos.reservas.ttl:15m}")
+    private Duration ttl;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private LibroMovimientosStock libroMovimientosStock;
+
+    @Autowired
+    private MetricasProductos metricasProductos;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    public void reconciliar() {
+        expiraciones.setRemoveOnCancelPolicy(true);
+
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        // El libro ya reconstruyó sus pendientes: se inyecta inicializado, antes de este @PostConstruct
+        lectura.executeWithoutResult(estado -> {
+            try (Stream<ProductoResumen> productos = productoRepository.streamCatalogo()) {
+                productos.forEach(p -> recalcular(p.idProducto(), p.stockActual(), p.version()));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void detener() {
+        expiraciones.shutdownNow();
+    }
+
+    // Reserva todas las líneas o ninguna; si una no alcanza se devuelven las ya reservadas
+    public Reserva reservar(List<LineaMovimientoStock> lineas) {
+        if (lineas == null || lineas.isEmpty()) {
+            throw new RuntimeException("Debe enviar al menos una línea para reservar");
+        }
+        if (lineas.size() > LINEAS_MAXIMAS) {
+            throw new RuntimeException("La reserva no puede exceder " + LINEAS_MAXIMAS + " líneas");
+        }
+
+        Map<Integer, Integer> cantidadesPorProducto = new TreeMap<>();
+        for (LineaMovimientoStock linea : lineas) {
+            if (linea.idProducto() == null) {
+                throw new RuntimeException("El campo 'idProducto' es obligatorio en cada línea");
+            }
+            if (linea.cantidad() == null || linea.cantidad() <= 0) {
+                throw new RuntimeException("La cantidad debe ser mayor a 0");
+            }
+            cantidadesPorProducto.merge(linea.idProducto(), linea.cantidad(), Integer::sum);
+        }
+
+        List<LineaMovimientoStock> reservadas = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entrada : cantidadesPorProducto.entrySet()) {
+            AtomicLong contador = contadores.get(entrada.getKey());
+            if (contador == null) {
+                devolver(reservadas);
+                throw new RuntimeException("No se encontró el producto con ID: " + entrada.getKey());
+            }
+            int disponible = apartar(contador, entrada.getValue());
+            if (disponible >= 0) {
+                devolver(reservadas);
+                throw new RuntimeException("Stock insuficiente para el producto con ID: " + entrada.getKey() +
+                                         ". Disponible: " + disponible + ", cantidad solicitada: " + entrada.getValue());
+            }
+            reservadas.add(new LineaMovimientoStock(entrada.getKey(), entrada.getValue()));
+        }
+
+        Reserva reserva = new Reserva(UUID.randomUUID().toString(), List.copyOf(reservadas), Instant.now().plus(ttl));
+        ReservaActiva activa = new ReservaActiva(reserva);
+        reservas.put(reserva.idReserva(), activa);
+        activa.expiracion = expiraciones.schedule(() -> expirar(reserva.idReserva()), ttl.toMillis(), TimeUnit.MILLISECONDS);
+        return reserva;
+    }
+
+    public Reserva confirmar(String idReserva) {
+        ReservaActiva activa = retirar(idReserva);
+        for (LineaMovimientoStock linea : activa.reserva.lineas()) {
+            // Lo reservado pasa a confirmado: ya no cuenta como disponible y espera el próximo volcado
+            confirmadosPendientes.computeIfAbsent(linea.idProducto(), id -> new AtomicLong()).addAndGet(linea.cantidad());
+            AtomicLong contador = contadores.get(linea.idProducto());
+            if (contador != null) {
+                contador.getAndUpdate(v -> empaquetar(disponible(v), reservado(v) - linea.cantidad()));
+            }
+        }
+        return activa.reserva;
+    }
+
+    public void liberar(String idReserva) {
+        devolver(retirar(idReserva).reserva.lineas());
+    }
+
+    public Optional<DisponibilidadProducto> obtenerDisponibilidad(Integer idProducto) {
+        AtomicLong contador = contadores.get(idProducto);
+        if (contador == null) {
+            return Optional.empty();
+        }
+        long valor = contador.get();
+        AtomicLong pendiente = confirmadosPendientes.get(idProducto);
+        return Optional.of(new DisponibilidadProducto(idProducto, disponible(valor), reservado(valor),
+                pendiente == null ? 0 : pendiente.get(), volcadosRechazados.contains(idProducto)));
+    }
+
+    // Unidades que los caminos de venta directa no pueden tomar: reservadas en carritos o confirmadas sin volcar
+    public int unidadesRetenidas(Integer idProducto) {
+        AtomicLong contador = contadores.get(idProducto);
+        AtomicLong pendiente = confirmadosPendientes.get(idProducto);
+        long retenidas = (contador == null ? 0 : reservado(contador.get())) + (pendiente == null ? 0 : pendiente.get());
+        return (int) Math.min(retenidas, Integer.MAX_VALUE);
+    }
+
+    // Escribe en productos las confirmaciones acumuladas, en un solo lote y una sola transacción
+    @Scheduled(fixedDelayString = "${productos.reservas.volcado-ms:500}")
+    public void volcarConfirmadas() {
+        Map<Integer, Long> lote = new TreeMap<>();
+        confirmadosPendientes.forEach((id, cantidad) -> {
+            if (cantidad.get() > 0) {
+                lote.put(id, cantidad.get());
+            }
+        });
+        if (lote.isEmpty()) {
+            return;
+        }
+
+        List<Integer> ids = new ArrayList<>(lote.keySet());
+        Map<Integer, Producto> volcados = new TreeMap<>();
+        Set<Integer> rechazados = new TreeSet<>();
+        Set<Integer> eliminados = new TreeSet<>();
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.executeWithoutResult(estado -> {
+            // Cada volcado se anota en el libro como una venta en el lugar: recibe sus salidas pendientes, que el
+            // UPDATE descuenta, y el libro no vende esas unidades hasta el commit
+            Map<Integer, Integer> salidasLibro = new TreeMap<>();
+            for (Integer id : ids) {
+                salidasLibro.put(id, libroMovimientosStock.anotarVentaEnLugar(id, Math.toIntExact(lote.get(id))));
+            }
+
+            // Las filas se actualizan en orden de id, así dos volcados no se bloquean mutuamente
+            int[][] filas = jdbcTemplate.batchUpdate(DISMINUIR_STOCK, ids, ids.size(), (ps, id) -> {
+                int cantidad = Math.toIntExact(lote.get(id));
+                ps.setInt(1, cantidad);
+                ps.setInt(2, cantidad);
+                ps.setInt(3, id);
+                ps.setInt(4, salidasLibro.get(id));
+                ps.setInt(5, cantidad);
+            });
+
+            for (int i = 0; i < ids.size(); i++) {
+                Integer id = ids.get(i);
+                int cantidad = Math.toIntExact(lote.get(id));
+                if (filas[0][i] == 0) {
+                    (productoRepository.existsById(id) ? rechazados : eliminados).add(id);
+                    continue;
+                }
+                libroMovimientosStock.registrarAplicado(id, -cantidad);
+                productoRepository.findById(id).ifPresent(producto -> {
+                    volcados.put(id, producto);
+                    metricasProductos.registrarSalida(cantidad, producto.getStockActual() == 0);
+                    eventPublisher.publishEvent(new ProductoModificadoEvent(id, producto));
+                });
+            }
+        });
+
+        // Solo después del commit deja de contarse lo volcado como pendiente. Lo rechazado sigue confirmado
+        // y pendiente hasta que haya stock; lo de productos eliminados se descarta
+        volcados.forEach((id, producto) -> {
+            // Un evento de eliminación pudo quitar el pendiente desde el commit
+            confirmadosPendientes.computeIfPresent(id, (clave, pendiente) -> {
+                pendiente.addAndGet(-lote.get(id));
+                return pendiente;
+            });
+            if (volcadosRechazados.remove(id)) {
+                log.info("Se volcaron las confirmaciones pendientes del producto {}", id);
+            }
+        });
+        for (Integer id : rechazados) {
+            if (volcadosRechazados.add(id)) {
+                log.warn("No se pudo volcar la confirmación de {} unidades del producto {}: stock insuficiente; " +
+                        "queda pendiente hasta que se reponga", lote.get(id), id);
+                metricasProductos.registrarVolcadoRechazado();
+            }
+        }
+        for (Integer id : eliminados) {
+            log.warn("Se descartan {} unidades confirmadas del producto {}: el producto fue eliminado", lote.get(id), id);
+            confirmadosPendientes.remove(id);
+            volcadosRechazados.remove(id);
+        }
+        volcados.forEach((id, producto) -> recalcular(id, producto.getStockActual(), producto.getVersion()));
+    }
+
+    @TransactionalEventListener
+    public void alModificarProducto(ProductoModificadoEvent evento) {
+        if (evento.eliminado()) {
+            versiones.compute(evento.idProducto(), (id, version) -> {
+                contadores.remove(id);
+                confirmadosPendientes.remove(id);
+                volcadosRechazados.remove(id);
+                return Long.MAX_VALUE;
+            });
+            return;
+        }
+        Producto producto = evento.producto();
+        recalcular(producto.getIdProducto(), producto.getStockActual(), producto.getVersion());
+    }
+
+    /**
+     * Disponible = stock en la base - salidas pendientes del libro - reservado - confirmado aún sin volcar.
+     *
+     * Una versión igual a la aplicada se vuelve a calcular: tiene el mismo stock, y el volcado la recalcula
+     * después de descontar lo volcado de lo confirmado. compute serializa el cálculo de un mismo producto
+     * con su eliminación.
+     */
+    private void recalcular(Integer idProducto, int stockActual, Long version) {
+        versiones.compute(idProducto, (id, aplicada) -> {
+            if (aplicada != null && version != null && version < aplicada) {
+                return aplicada;
+            }
+            AtomicLong contador = contadores.computeIfAbsent(id, clave -> new AtomicLong(empaquetar(0, 0)));
+            AtomicLong pendiente = confirmadosPendientes.get(id);
+            long retenido = libroMovimientosStock.salidasPendientes(id) + (pendiente == null ? 0 : pendiente.get());
+            contador.getAndUpdate(v -> empaquetar((int) (stockActual - reservado(v) - retenido), reservado(v)));
+            return version == null ? aplicada : version;
+        });
+    }
+
+    /**
+     * Mueve la cantidad de disponible a reservado. Devuelve -1 si se reservó, o lo disponible si no alcanzaba.
+     */
+    private int apartar(AtomicLong contador, int cantidad) {
+        while (true) {
+            long actual = contador.get();
+            int disponible = disponible(actual);
+            if (disponible < cantidad) {
+                return Math.max(disponible, 0);
+            }
+            if (contador.compareAndSet(actual, empaquetar(disponible - cantidad, reservado(actual) + cantidad))) {
+                return -1;
+            }
+        }
+    }
+
+    private void devolver(List<LineaMovimientoStock> lineas) {
+        for (LineaMovimientoStock linea : lineas) {
+            AtomicLong contador = contadores.get(linea.idProducto());
+            if (contador != null) {
+                contador.getAndUpdate(v -> empaquetar(disponible(v) + linea.cantidad(), reservado(v) - linea.cantidad()));
+            }
+        }
+    }
+
+    private void expirar(String idReserva) {
+        ReservaActiva activa = reservas.remove(idReserva);
+        if (activa != null) {
+            devolver(activa.reserva.lineas());
+        }
+    }
+
+    // Quien retira la reserva del mapa (confirmar, liberar o expirar) es el único que la procesa
+    private ReservaActiva retirar(String idReserva) {
+        ReservaActiva activa = reservas.remove(idReserva);
+        if (activa == null) {
+            throw new RuntimeException("No se encontró la reserva " + idReserva + " o ya expiró");
+        }
+        if (activa.expiracion != null) {
+            activa.expiracion.cancel(false);
+        }
+        return activa;
+    }
+
+    private static long empaquetar(int disponible, int reservado) {
+        return ((long) disponible << 32) | (reservado & 0xFFFFFFFFL);
+    }
+
+    private static int disponible(long valor) {
+        return (int) (valor >> 32);
+    }
+
+    private static int reservado(long valor) {
+        return (int) valor;
+    }
+
+    private static final class ReservaActiva {
+
+        private final Reserva reserva;
+        private volatile ScheduledFuture<?> expiracion;
+
+        private ReservaActiva(Reserva reserva) {
+            this.reserva = reserva;
+        }
+    }
+}
@@ -1,36 +1,174 @@
 package com.banquito.gestionproductos.service;
 
+import com.banquito.gestionproductos.config.DataSourceReplicas;
+import com.banquito.gestionproductos.dto.LineaMovimientoStock;
+import com.banquito.gestionproductos.dto.LoteProductos;
+import com.banquito.gestionproductos.dto.PaginaCursor;
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.dto.StockProducto;
+import com.banquito.gestionproductos.entity.MovimientoStock;
 import com.banquito.gestionproductos.entity.Producto;
 import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.exception.VersionNoCoincideException;
 import com.banquito.gestionproductos.repository.ProductoRepository;
-import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
+@Timed(value = "gestionproductos.servicio", histogram = true)
 public class ProductoService {
 
+    public static final String CACHE_PRODUCTOS = "productos";
+
+    private static final int LIMITE_POR_DEFECTO = 50;
+    private static final int LIMITE_MAXIMO = 500;
+    private static final int LINEAS_MAXIMAS_LOTE = 500;
+    private static final int IDS_MAXIMOS_LOTE = 100;
+    private static final Pattern ESTADOS_VALIDOS = Pattern.compile("^(Activo|Inactivo|Agotado)$");
+
     @Autowired
     private ProductoRepository productoRepository;
 
     @Autowired
-    private CategoriaProductoRepository categoriaProductoRepository;
+    private RegistroCategorias registroCategorias;
+
+    @Autowired
+    private IndiceBusquedaProductos indiceBusquedaProductos;
+
+    @Autowired
+    private SeguimientoStockBajo seguimientoStockBajo;
+
+    @Autowired
+    private MetricasProductos metricasProductos;
+
+    @Autowired
+    private LibroMovimientosStock libroMovimientosStock;
+
+    @Autowired
+    private MotorReservas motorReservas;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // Precio de venta = costo de compra * margen, al reponer stock con precio de compra
+    @Value("${productos.precio.margen:1.25}")
+    private BigDecimal margenPrecioVenta;
+
+    // Se cachea la proyección (inmutable) y no la entidad, así no depende de la sesión que la cargó. Un cliente
+    // con una escritura reciente no usa la caché: otro cliente pudo llenarla desde una réplica atrasada
+    @Cacheable(cacheNames = CACHE_PRODUCTOS, key = "#id", unless = "#result == null",
+               condition = "!T(com.banquito.gestionproductos.config.DataSourceReplicas).lecturaEnPrimario()")
     @Transactional(readOnly = true)
-    public Optional<Producto> obtenerProductoPorId(Integer id) {
-        return productoRepository.findById(id);
+    public Optional<ProductoResumen> obtenerProductoPorId(Integer id) {
+        return productoRepository.findResumenById(id);
     }
 
+    // Lectura por lote para carritos y pedidos: primero la caché de productos y una sola consulta para los
+    // que falten. Sin transacción propia: si todos están en caché no se toma una conexión
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public LoteProductos obtenerProductosPorIds(List<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new RuntimeException("Debe enviar al menos un id de producto");
+        }
+        LinkedHashSet<Integer> idsUnicos = new LinkedHashSet<>(ids);
+        idsUnicos.remove(null);
+        if (idsUnicos.size() > IDS_MAXIMOS_LOTE) {
+            throw new RuntimeException("El lote no puede exceder " + IDS_MAXIMOS_LOTE + " productos");
+        }
+
+        Cache cache = DataSourceReplicas.lecturaEnPrimario() ? null : cacheManager.getCache(CACHE_PRODUCTOS);
+        Map<Integer, ProductoResumen> productosPorId = new HashMap<>();
+        List<Integer> faltantes = new ArrayList<>();
+        for (Integer id : idsUnicos) {
+            ProductoResumen enCache = cache == null ? null : cache.get(id, ProductoResumen.class);
+            if (enCache != null) {
+                productosPorId.put(id, enCache);
+            } else {
+                faltantes.add(id);
+            }
+        }
+
+        if (!faltantes.isEmpty()) {
+            for (ProductoResumen producto : productoRepository.findResumenesByIds(faltantes)) {
+                productosPorId.put(producto.idProducto(), producto);
+                if (cache != null) {
+                    cache.putIfAbsent(producto.idProducto(), producto);
+                }
+            }
+        }
+
+        List<ProductoResumen> productos = new ArrayList<>(productosPorId.size());
+        List<Integer> idsNoEncontrados = new ArrayList<>();
+        for (Integer id : idsUnicos) {
+            ProductoResumen producto = productosPorId.get(id);
+            if (producto != null) {
+                productos.add(producto);
+            } else {
+                idsNoEncontrados.add(id);
+            }
+        }
+        metricasProductos.registrarFilas("lote", productos.size());
+        return new LoteProductos(productos, idsNoEncontrados);
+    }
+
+    @Transactional(readOnly = true)
+    public PaginaCursor<ProductoResumen> obtenerTodosLosProductos(Integer cursor, Integer limite) {
+        return paginar("todos", limite, (l) -> productoRepository.findPaginaDesde(normalizarCursor(cursor), l));
+    }
+
+    // Escribe el catálogo completo como NDJSON fila por fila; la proyección no crea entidades
+    // administradas, por lo que la memoria usada no depende del tamaño de la tabla
     @Transactional(readOnly = true)
-    public List<Producto> obtenerTodosLosProductos() {
-        return productoRepository.findAll();
+    public void exportarCatalogo(OutputStream salida) throws IOException {
+        ObjectWriter escritor = objectMapper.writerFor(ProductoResumen.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (Stream<ProductoResumen> productos = productoRepository.streamCatalogo();
+             JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            for (ProductoResumen producto : (Iterable<ProductoResumen>) productos::iterator) {
+                escritor.writeValue(generador, producto);
+                generador.writeRaw('\n');
+            }
+        }
     }
 
     public Producto crearProducto(Producto producto) {
@@ -40,7 +178,7 @@ public class ProductoService {
         }
 
         if (producto.getCategoria() != null && producto.getCategoria().getIdCategoria() != null) {
-            Optional<CategoriaProducto> categoria = categoriaProductoRepository.findById(producto.getCategoria().getIdCategoria());
+            Optional<CategoriaProducto> categoria = registroCategorias.obtener(producto.getCategoria().getIdCategoria());
             if (categoria.isEmpty()) {
                 throw new RuntimeException("No se encontró la categoría con ID: " + producto.getCategoria().getIdCategoria());
             }
@@ -53,24 +191,28 @@ public class ProductoService {
             producto.setEstadoProducto("Activo");
         }
 
-        return productoRepository.save(producto);
+        Producto guardado = productoRepository.save(producto);
+        libroMovimientosStock.registrarAlta(guardado.getIdProducto(), guardado.getStockActual());
+        return publicarModificacion(guardado);
     }
 
-    public Producto cambiarEstadoProducto(Integer id, String nuevoEstado) {
+    public Producto cambiarEstadoProducto(Integer id, String nuevoEstado, Long versionEsperada) {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         
         if (productoOpt.isEmpty()) {
             throw new RuntimeException("No se encontró el producto con ID: " + id);
         }
 
-        if (!nuevoEstado.matches("^(Activo|Inactivo|Agotado)$")) {
+        validarVersion(productoOpt.get(), versionEsperada);
+
+        if (!esEstadoValido(nuevoEstado)) {
             throw new RuntimeException("Estado inválido. Debe ser: Activo, Inactivo o Agotado");
         }
 
         Producto producto = productoOpt.get();
         producto.setEstadoProducto(nuevoEstado);
 
-        return productoRepository.save(producto);
+        return publicarModificacion(productoRepository.save(producto));
     }
 
     public Producto aumentarStock(Integer id, Integer cantidad, BigDecimal precioCompra) {
@@ -78,29 +220,21 @@ public class ProductoService {
             throw new RuntimeException("La cantidad debe ser mayor a 0");
         }
 
-        Optional<Producto> productoOpt = productoRepository.findById(id);
-        
-        if (productoOpt.isEmpty()) {
-            throw new RuntimeException("No se encontró el producto con ID: " + id);
-        }
-
-        Producto producto = productoOpt.get();
-
-
-        producto.setStockActual(producto.getStockActual() + cantidad);
-
+        int filasActualizadas;
         if (precioCompra != null && precioCompra.compareTo(BigDecimal.ZERO) > 0) {
-            producto.setCostoCompra(precioCompra);
-
-            BigDecimal nuevoPrecioVenta = precioCompra
-                .multiply(new BigDecimal("1.25"))
-                .setScale(2, RoundingMode.HALF_UP);
-            producto.setPrecioVenta(nuevoPrecioVenta);
+            BigDecimal nuevoPrecioVenta = calcularPrecioVenta(precioCompra, margenPrecioVenta);
+            filasActualizadas = productoRepository.aumentarStockConPrecioAtomico(id, cantidad, precioCompra, nuevoPrecioVenta);
+        } else {
+            filasActualizadas = productoRepository.aumentarStockAtomico(id, cantidad);
         }
 
-        producto.setEstadoProducto("Activo");
+        if (filasActualizadas == 0) {
+            throw new RuntimeException("No se encontró el producto con ID: " + id);
+        }
 
-        return productoRepository.save(producto);
+        metricasProductos.registrarEntrada(cantidad);
+        libroMovimientosStock.registrarAplicado(id, cantidad);
+        return publicarModificacion(productoRepository.findById(id).get());
     }
 
     public Producto disminuirStock(Integer id, Integer cantidad) {
@@ -108,55 +242,158 @@ public class ProductoService {
             throw new RuntimeException("La cantidad debe ser mayor a 0");
         }
 
-        Optional<Producto> productoOpt = productoRepository.findById(id);
-        
-        if (productoOpt.isEmpty()) {
-            throw new RuntimeException("No se encontró el producto con ID: " + id);
+        // Una sola sentencia sobre la fila, sin bloquearla antes: el UPDATE solo la afecta si hay stock suficiente
+        // descontando lo comprometido, así dos ventas concurrentes no pueden sobrevender. La venta queda anotada en
+        // el libro hasta el commit
+        int comprometido = anotarVentaEnLugar(id, cantidad);
+        if (productoRepository.disminuirStockAtomico(id, cantidad, comprometido) == 0) {
+            // Solo al fallar se lee la fila, para distinguir un producto inexistente de la falta de stock
+            Integer stockActual = productoRepository.findStockActualById(id)
+                    .orElseThrow(() -> new RuntimeException("No se encontró el producto con ID: " + id));
+            throw new RuntimeException("Stock insuficiente. Stock actual: " + (stockActual - comprometido) +
+                                     ", cantidad solicitada: " + cantidad);
         }
 
-        Producto producto = productoOpt.get();
+        Producto producto = productoRepository.findById(id).get();
+        metricasProductos.registrarSalida(cantidad, producto.getStockActual() == 0);
+        libroMovimientosStock.registrarAplicado(id, -cantidad);
+        return publicarModificacion(producto);
+    }
 
-        if (producto.getStockActual() < cantidad) {
-            throw new RuntimeException("Stock insuficiente. Stock actual: " + producto.getStockActual() + 
-                                     ", cantidad solicitada: " + cantidad);
+    // Aplica todas las líneas de un pedido en una sola transacción: o se descuentan todas o ninguna
+    public List<Producto> disminuirStockLote(List<LineaMovimientoStock> lineas) {
+        if (lineas == null || lineas.isEmpty()) {
+            throw new RuntimeException("Debe enviar al menos una línea de stock");
+        }
+        if (lineas.size() > LINEAS_MAXIMAS_LOTE) {
+            throw new RuntimeException("El lote no puede exceder " + LINEAS_MAXIMAS_LOTE + " líneas");
+        }
+
+        Map<Integer, Integer> cantidadesPorProducto = new TreeMap<>();
+        for (LineaMovimientoStock linea : lineas) {
+            if (linea.idProducto() == null) {
+                throw new RuntimeException("El campo 'idProducto' es obligatorio en cada línea");
+            }
+            if (linea.cantidad() == null || linea.cantidad() <= 0) {
+                throw new RuntimeException("La cantidad debe ser mayor a 0");
+            }
+            cantidadesPorProducto.merge(linea.idProducto(), linea.cantidad(), Integer::sum);
+        }
+
+        List<Producto> productos = productoRepository.findByIdsParaActualizar(cantidadesPorProducto.keySet());
+
+        if (productos.size() != cantidadesPorProducto.size()) {
+            for (Producto producto : productos) {
+                cantidadesPorProducto.remove(producto.getIdProducto());
+            }
+            throw new RuntimeException("No se encontró el producto con ID: " + cantidadesPorProducto.keySet().iterator().next());
         }
 
-        int nuevoStock = producto.getStockActual() - cantidad;
-        producto.setStockActual(nuevoStock);
+        for (Producto producto : productos) {
+            int cantidad = cantidadesPorProducto.get(producto.getIdProducto());
+            int disponible = producto.getStockActual() - anotarVentaEnLugar(producto.getIdProducto(), cantidad);
 
-        if (nuevoStock == 0) {
-            producto.setEstadoProducto("Agotado");
+            if (disponible < cantidad) {
+                throw new RuntimeException("Stock insuficiente para el producto con ID: " + producto.getIdProducto() +
+                                         ". Stock actual: " + disponible + ", cantidad solicitada: " + cantidad);
+            }
+
+            int nuevoStock = producto.getStockActual() - cantidad;
+            producto.setStockActual(nuevoStock);
+
+            if (nuevoStock == 0) {
+                producto.setEstadoProducto("Agotado");
+            }
+            metricasProductos.registrarSalida(cantidad, nuevoStock == 0);
+            libroMovimientosStock.registrarAplicado(producto.getIdProducto(), -cantidad);
         }
 
-        return productoRepository.save(producto);
+        List<Producto> actualizados = productoRepository.saveAll(productos);
+        actualizados.forEach(this::publicarModificacion);
+        return actualizados;
+    }
+
+    // Camino de solo inserción para productos muy vendidos: el stock se consolida en productos por compactación.
+    // Sin transacción aquí, el libro abre y confirma la suya mientras tiene el candado del producto
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public MovimientoStock registrarMovimientoStock(Integer id, Integer cantidad) {
+        return libroMovimientosStock.registrar(id, cantidad, motorReservas.unidadesRetenidas(id));
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public StockProducto obtenerStock(Integer id, LocalDateTime fecha) {
+        return fecha == null ? libroMovimientosStock.obtenerStock(id) : libroMovimientosStock.obtenerStockEn(id, fecha);
     }
 
     @Transactional(readOnly = true)
-    public List<Producto> obtenerProductosPorEstado(String estado) {
-        return productoRepository.findByEstadoProducto(estado);
+    public PaginaCursor<ProductoResumen> obtenerProductosPorEstado(String estado, Integer cursor, Integer limite) {
+        return paginar("estado", limite,
+                (l) -> productoRepository.findByEstadoProductoDesde(estado, normalizarCursor(cursor), l));
     }
 
     @Transactional(readOnly = true)
-    public List<Producto> obtenerProductosPorCategoria(Integer idCategoria) {
-        return productoRepository.findByCategoria(idCategoria);
+    public PaginaCursor<ProductoResumen> obtenerProductosPorCategoria(Integer idCategoria, Integer cursor, Integer limite) {
+        return paginar("categoria", limite,
+                (l) -> productoRepository.findByCategoriaDesde(idCategoria, normalizarCursor(cursor), l));
     }
 
+    // Los ids salen del índice de stock en memoria; solo la página pedida se lee de la base
     @Transactional(readOnly = true)
-    public List<Producto> obtenerProductosConStockBajo(Integer stockMinimo) {
-        return productoRepository.findProductosConStockBajo(stockMinimo);
+    public PaginaCursor<ProductoResumen> obtenerProductosConStockBajo(Integer stockMinimo, Integer cursor, Integer limite) {
+        return paginar("stock-bajo", limite, (l) -> cargarEnOrden(
+                seguimientoStockBajo.idsConStockMenorA(stockMinimo, normalizarCursor(cursor), l.max())));
     }
 
+    // Paginado por (precioVenta, idProducto): el cursor de la página siguiente lleva también el precio del último
     @Transactional(readOnly = true)
-    public List<Producto> buscarProductosPorNombre(String nombre) {
-        return productoRepository.findByNombreProductoContaining(nombre);
+    public PaginaCursor<ProductoResumen> obtenerProductosPorRangoPrecios(BigDecimal precioMin, BigDecimal precioMax, String estado,
+                                                                  Integer idCategoria, BigDecimal cursorPrecio,
+                                                                  Integer cursor, Integer limite) {
+        if (precioMin == null || precioMax == null || precioMin.compareTo(precioMax) > 0) {
+            throw new RuntimeException("El rango de precios es inválido: precioMin debe ser menor o igual a precioMax");
+        }
+        if ((cursor == null) != (cursorPrecio == null)) {
+            throw new RuntimeException("Los parámetros 'cursor' y 'cursorPrecio' se envían juntos");
+        }
+        BigDecimal precioDesde = cursorPrecio == null ? precioMin : cursorPrecio.max(precioMin);
+        Integer desde = normalizarCursor(cursor);
+        PaginaCursor<ProductoResumen> pagina = paginar("rango-precios", limite, (l) -> {
+            if (estado != null && idCategoria != null) {
+                return productoRepository.findByRangoPreciosEstadoYCategoriaDesde(precioDesde, precioMax, estado,
+                        idCategoria, desde, l);
+            }
+            if (estado != null) {
+                return productoRepository.findByRangoPreciosYEstadoDesde(precioDesde, precioMax, estado, desde, l);
+            }
+            if (idCategoria != null) {
+                return productoRepository.findByRangoPreciosYCategoriaDesde(precioDesde, precioMax, idCategoria, desde, l);
+            }
+            return productoRepository.findByRangoPreciosDesde(precioDesde, precioMax, desde, l);
+        });
+        if (!pagina.hayMas()) {
+            return pagina;
+        }
+        List<ProductoResumen> contenido = pagina.contenido();
+        return new PaginaCursor<>(contenido, pagina.limite(), pagina.siguienteCursor(), true,
+                contenido.get(contenido.size() - 1).precioVenta());
     }
 
+    // La búsqueda se resuelve en el índice de trigramas; solo los ids encontrados se leen de la base
     @Transactional(readOnly = true)
-    public List<Producto> obtenerProductosDisponibles() {
-        return productoRepository.findProductosDisponibles();
+    public List<ProductoResumen> buscarProductosPorNombre(String nombre, Integer limite) {
+        List<Integer> ids = indiceBusquedaProductos.buscar(nombre, normalizarLimite(limite));
+        List<ProductoResumen> productos = cargarEnOrden(ids);
+        metricasProductos.registrarFilas("buscar", productos.size());
+        return productos;
     }
 
-    public Producto actualizarProducto(Integer id, Producto productoActualizado) {
+    @Transactional(readOnly = true)
+    public PaginaCursor<ProductoResumen> obtenerProductosDisponibles(Integer cursor, Integer limite) {
+        return paginar("disponibles", limite,
+                (l) -> productoRepository.findProductosDisponiblesDesde(normalizarCursor(cursor), l));
+    }
+
+    public Producto actualizarProducto(Integer id, Producto productoActualizado, Long versionEsperada) {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         
         if (productoOpt.isEmpty()) {
@@ -164,6 +401,7 @@ public class ProductoService {
         }
 
         Producto producto = productoOpt.get();
+        validarVersion(producto, versionEsperada);
 
         if (!producto.getNombreProducto().equals(productoActualizado.getNombreProducto()) &&
             productoRepository.existsByNombreProducto(productoActualizado.getNombreProducto())) {
@@ -174,18 +412,19 @@ public class ProductoService {
         producto.setDescripcion(productoActualizado.getDescripcion());
         producto.setPrecioVenta(productoActualizado.getPrecioVenta());
         producto.setCostoCompra(productoActualizado.getCostoCompra());
+        libroMovimientosStock.registrarAplicado(id, productoActualizado.getStockActual() - producto.getStockActual());
         producto.setStockActual(productoActualizado.getStockActual());
         producto.setEstadoProducto(productoActualizado.getEstadoProducto());
 
         if (productoActualizado.getCategoria() != null && productoActualizado.getCategoria().getIdCategoria() != null) {
-            Optional<CategoriaProducto> categoria = categoriaProductoRepository.findById(productoActualizado.getCategoria().getIdCategoria());
+            Optional<CategoriaProducto> categoria = registroCategorias.obtener(productoActualizado.getCategoria().getIdCategoria());
             if (categoria.isEmpty()) {
                 throw new RuntimeException("No se encontró la categoría con ID: " + productoActualizado.getCategoria().getIdCategoria());
             }
             producto.setCategoria(categoria.get());
         }
 
-        return productoRepository.save(producto);
+        return publicarModificacion(productoRepository.save(producto));
     }
 
 
@@ -194,5 +433,74 @@ public class ProductoService {
             throw new RuntimeException("No se encontró el producto con ID: " + id);
         }
         productoRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductoModificadoEvent(id, null));
+    }
+
+    /**
+     * Anota en el libro una venta directa que el llamador aplicará sobre productos en su transacción, y devuelve
+     * las unidades que esa venta no puede tomar aunque sigan en stock_actual: salidas del libro aún sin
+     * compactar y lo reservado o confirmado en el motor de reservas.
+     */
+    public int anotarVentaEnLugar(Integer id, int cantidad) {
+        return libroMovimientosStock.anotarVentaEnLugar(id, cantidad) + motorReservas.unidadesRetenidas(id);
+    }
+
+    static boolean esEstadoValido(String estado) {
+        return ESTADOS_VALIDOS.matcher(estado).matches();
+    }
+
+    static BigDecimal calcularPrecioVenta(BigDecimal precioCompra, BigDecimal margen) {
+        return precioCompra.multiply(margen).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // If-Match: la versión cargada es la que Hibernate compara al hacer flush, así que una escritura
+    // concurrente posterior a esta validación también falla (ObjectOptimisticLockingFailureException)
+    private void validarVersion(Producto producto, Long versionEsperada) {
+        if (versionEsperada != null && !versionEsperada.equals(producto.getVersion())) {
+            throw new VersionNoCoincideException("El producto con ID " + producto.getIdProducto() +
+                    " fue modificado: versión esperada " + versionEsperada + ", versión actual " + producto.getVersion());
+        }
+    }
+
+    private Producto publicarModificacion(Producto producto) {
+        eventPublisher.publishEvent(new ProductoModificadoEvent(producto.getIdProducto(), producto));
+        return producto;
+    }
+
+    private List<ProductoResumen> cargarEnOrden(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Integer, ProductoResumen> productosPorId = new HashMap<>();
+        for (ProductoResumen producto : productoRepository.findResumenesByIds(ids)) {
+            productosPorId.put(producto.idProducto(), producto);
+        }
+        return ids.stream()
+                .map(productosPorId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private Integer normalizarCursor(Integer cursor) {
+        return cursor == null ? 0 : cursor;
+    }
+
+    private int normalizarLimite(Integer limite) {
+        return limite == null ? LIMITE_POR_DEFECTO : Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+    }
+
+    // Se pide un registro adicional para saber si existe una página siguiente sin ejecutar un COUNT
+    private PaginaCursor<ProductoResumen> paginar(String operacion, Integer limite,
+                                                  Function<Limit, List<ProductoResumen>> consulta) {
+        int tamanio = normalizarLimite(limite);
+        List<ProductoResumen> productos = consulta.apply(Limit.of(tamanio + 1));
+
+        boolean hayMas = productos.size() > tamanio;
+        List<ProductoResumen> contenido = hayMas ? productos.subList(0, tamanio) : productos;
+        Integer siguienteCursor = hayMas ? contenido.get(contenido.size() - 1).idProducto() : null;
+
+        metricasProductos.registrarFilas(operacion, contenido.size());
+        return new PaginaCursor<>(contenido, tamanio, siguienteCursor, hayMas);
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
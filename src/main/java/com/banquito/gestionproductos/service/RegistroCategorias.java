@@ -0,0 +1,87 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.event.CategoriaModificadaEvent;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copia en memoria de la tabla categorias_producto. Se carga al iniciar y cada cambio
+ * confirmado reemplaza la instantánea completa (copy-on-write), por lo que las lecturas
+ * no usan bloqueos ni consultan la base de datos.
+ *
+ * Cada instancia de la aplicación mantiene su propia copia: los cambios hechos desde otra
+ * instancia no se ven hasta llamar a {@link #recargar()}.
+ */
+@Component
+public class RegistroCategorias {
+
+    private final AtomicReference<Instantanea> instantanea = new AtomicReference<>(Instantanea.crear(Map.of()));
+
+    @Autowired
+    private CategoriaProductoRepository categoriaProductoRepository;
+
+    @PostConstruct
+    public void recargar() {
+        Map<Integer, CategoriaProducto> categorias = new HashMap<>();
+        for (CategoriaProducto categoria : categoriaProductoRepository.findAll()) {
+            categorias.put(categoria.getIdCategoria(), copiar(categoria));
+        }
+        instantanea.set(Instantanea.crear(categorias));
+    }
+
+    public Optional<CategoriaProducto> obtener(Integer idCategoria) {
+        return Optional.ofNullable(instantanea.get().porId().get(idCategoria));
+    }
+
+    public boolean existe(Integer idCategoria) {
+        return instantanea.get().porId().containsKey(idCategoria);
+    }
+
+    public List<CategoriaProducto> listar() {
+        return instantanea.get().ordenadas();
+    }
+
+    @TransactionalEventListener
+    public void alModificarCategoria(CategoriaModificadaEvent evento) {
+        CategoriaProducto copia = evento.eliminada() ? null : copiar(evento.categoria());
+
+        instantanea.updateAndGet(actual -> {
+            Map<Integer, CategoriaProducto> categorias = new HashMap<>(actual.porId());
+            if (copia == null) {
+                categorias.remove(evento.idCategoria());
+            } else {
+                categorias.put(copia.getIdCategoria(), copia);
+            }
+            return Instantanea.crear(categorias);
+        });
+    }
+
+    // Las entradas del registro se comparten entre hilos; nunca se guarda la instancia administrada por JPA
+    private CategoriaProducto copiar(CategoriaProducto categoria) {
+        CategoriaProducto copia = new CategoriaProducto(categoria.getNombreCategoria(), categoria.getDescripcion());
+        copia.setIdCategoria(categoria.getIdCategoria());
+        copia.setVersion(categoria.getVersion());
+        return copia;
+    }
+
+    private record Instantanea(Map<Integer, CategoriaProducto> porId, List<CategoriaProducto> ordenadas) {
+
+        static Instantanea crear(Map<Integer, CategoriaProducto> categorias) {
+            List<CategoriaProducto> ordenadas = new ArrayList<>(categorias.values());
+            ordenadas.sort(Comparator.comparing(CategoriaProducto::getIdCategoria));
+            return new Instantanea(Map.copyOf(categorias), List.copyOf(ordenadas));
+        }
+    }
+}
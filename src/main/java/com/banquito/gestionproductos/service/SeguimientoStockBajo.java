@@ -0,0 +1,185 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.event.StockBajoEvent;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Índice ordenado en memoria por (stockActual, idProducto). Responde las consultas de stock
+ * bajo sin tocar la base de datos y avisa cuando un producto cruza el umbral configurado.
+ *
+ * Cada entrada se codifica en un long (stock en los 32 bits altos, id en los bajos) para que
+ * el conjunto ordenado no necesite objetos por producto.
+ *
+ * Los listeners posteriores al commit de dos transacciones sobre el mismo producto pueden correr en
+ * cualquier orden: se guarda la versión de cada producto y se descarta el cambio que llega con una
+ * versión igual o menor, y el de un producto ya eliminado.
+ */
+@Component
+public class SeguimientoStockBajo {
+
+    private static final Entrada DESCARTADA = new Entrada(0, null);
+
+    private final Map<Integer, Entrada> stockPorProducto = new ConcurrentHashMap<>();
+    private final NavigableSet<Long> indice = new ConcurrentSkipListSet<>();
+    private final Set<Integer> eliminados = ConcurrentHashMap.newKeySet();
+
+    @Value("${productos.stock-bajo.umbral:10}")
+    private int umbral;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    public void cargar() {
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        lectura.executeWithoutResult(estado -> {
+            try (Stream<ProductoResumen> productos = productoRepository.streamCatalogo()) {
+                productos.forEach(p -> actualizar(p.idProducto(), p.stockActual(), p.version()));
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public void alModificarProducto(ProductoModificadoEvent evento) {
+        if (evento.eliminado()) {
+            stockPorProducto.compute(evento.idProducto(), (id, actual) -> {
+                eliminados.add(id);
+                if (actual != null) {
+                    indice.remove(clave(actual.stock, id));
+                }
+                return null;
+            });
+            return;
+        }
+
+        Producto producto = evento.producto();
+        Entrada anterior = actualizar(producto.getIdProducto(), producto.getStockActual(), producto.getVersion());
+        if (anterior == DESCARTADA) {
+            return;
+        }
+        boolean cruzoUmbral = producto.getStockActual() < umbral && (anterior == null || anterior.stock >= umbral);
+        if (cruzoUmbral) {
+            eventPublisher.publishEvent(new StockBajoEvent(producto.getIdProducto(), producto.getNombreProducto(),
+                    producto.getStockActual(), umbral));
+        }
+    }
+
+    /**
+     * Hasta {@code limite} ids mayores a {@code desdeId} con stock menor a {@code stockMinimo}, en orden de id.
+     *
+     * Dentro de un mismo nivel de stock el índice ya está ordenado por id: cada nivel se recorre con un
+     * subSet que empieza en el cursor y los niveles se mezclan tomando siempre el menor id, así una página
+     * lee a lo sumo {@code limite} entradas más una por nivel.
+     */
+    public List<Integer> idsConStockMenorA(int stockMinimo, int desdeId, int limite) {
+        PriorityQueue<Tramo> tramos = new PriorityQueue<>(Comparator.comparingInt((Tramo t) -> t.id));
+        Long primera = indice.isEmpty() ? null : indice.first();
+        while (primera != null && stock(primera) < stockMinimo) {
+            int nivel = stock(primera);
+            Iterator<Long> claves = indice.subSet(clave(nivel, desdeId), false, clave(nivel + 1, 0), false).iterator();
+            if (claves.hasNext()) {
+                tramos.add(new Tramo(claves));
+            }
+            primera = indice.ceiling(clave(nivel + 1, 0));
+        }
+
+        List<Integer> ids = new ArrayList<>(limite);
+        while (ids.size() < limite && !tramos.isEmpty()) {
+            Tramo tramo = tramos.poll();
+            ids.add(tramo.id);
+            if (tramo.avanzar()) {
+                tramos.add(tramo);
+            }
+        }
+        return ids;
+    }
+
+    public int getUmbral() {
+        return umbral;
+    }
+
+    // Devuelve la entrada anterior, o DESCARTADA si el cambio ya está superado; compute serializa las
+    // actualizaciones y la eliminación de un mismo producto
+    private Entrada actualizar(Integer idProducto, int stock, Long version) {
+        Entrada[] anterior = new Entrada[1];
+        stockPorProducto.compute(idProducto, (id, actual) -> {
+            if (eliminados.contains(id) || (actual != null && !actual.esAnteriorA(version))) {
+                anterior[0] = DESCARTADA;
+                return actual;
+            }
+            anterior[0] = actual;
+            if (actual != null) {
+                indice.remove(clave(actual.stock, id));
+            }
+            indice.add(clave(stock, id));
+            return new Entrada(stock, version);
+        });
+        return anterior[0];
+    }
+
+    private static long clave(int stock, int idProducto) {
+        return ((long) stock << 32) | (idProducto & 0xFFFFFFFFL);
+    }
+
+    private static int stock(long clave) {
+        return (int) (clave >> 32);
+    }
+
+    private record Entrada(int stock, Long version) {
+
+        // Sin versión (un producto que aún no pasó por la base) no hay con qué ordenar: se reemplaza
+        boolean esAnteriorA(Long otra) {
+            return version == null || otra == null || version < otra;
+        }
+    }
+
+    // Los ids de un nivel de stock a partir del cursor; id es el próximo a entregar
+    private static final class Tramo {
+
+        private final Iterator<Long> claves;
+        private int id;
+
+        private Tramo(Iterator<Long> claves) {
+            this.claves = claves;
+            avanzar();
+        }
+
+        private boolean avanzar() {
+            if (!claves.hasNext()) {
+                return false;
+            }
+            id = (int) (long) claves.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.banquito.gestionproductos.carga;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import com.banquito.gestionproductos.service.CategoriaProductoService;
+import com.banquito.gestionproductos.service.ImportacionProductoService;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Carga mixta de lectura/escritura contra la API REST completa sobre H2 embebida.
+ *
+ * No corre con el build normal; se ejecuta con el perfil "carga":
+ * mvn -Pcarga test [-Dcarga.segundos=60] [-Dcarga.hilos=128] [-Dcarga.productos=50000]
+ *
+ * Para comparar hilos de plataforma con hilos virtuales se corre dos veces, con
+ * PRODUCTOS_HILOS_VIRTUALES=false y =true (o -Dspring.threads.virtual.enabled, que lo sobrescribe).
+ * El encabezado del reporte indica el modo con que atendió el servidor.
+ *
+ * El resumen por endpoint (throughput, percentiles y tasas de rechazo/error) se imprime y se
+ * guarda en target/carga-resultados.txt.
+ */
+@Tag("carga")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class CargaApiTest {
+
+	private static final Logger log = LoggerFactory.getLogger(CargaApiTest.class);
+
+	private static final String PRODUCTOS = "/api/gestion-productos/productos";
+	private static final String CATEGORIAS = "/api/gestion-productos/categorias";
+	private static final String CABECERA_CSV = "nombreProducto,descripcion,precioVenta,costoCompra,stockActual,estadoProducto,idCategoria\n";
+	private static final String[] TERMINOS = {"leche", "queso", "yogur", "pan", "arroz", "aceite", "cafe", "azucar"};
+
+	private static final int SEGUNDOS = Integer.getInteger("carga.segundos", 30);
+	private static final int CALENTAMIENTO = Integer.getInteger("carga.calentamiento", 5);
+	private static final int HILOS = Integer.getInteger("carga.hilos", 64);
+	private static final int CANTIDAD_PRODUCTOS = Integer.getInteger("carga.productos", 20000);
+	private static final int CANTIDAD_CATEGORIAS = 25;
+	private static final int PRODUCTOS_CALIENTES = 20;
+	private static final int PRODUCTOS_EDITABLES = 100;
+	private static final long LATENCIA_MAXIMA_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+	@LocalServerPort
+	private int puerto;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private ImportacionProductoService importacionProductoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private Environment environment;
+
+	private final HttpClient cliente = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(5))
+			.build();
+
+	private final Map<String, Estadistica> estadisticas = new LinkedHashMap<>();
+	private final List<Operacion> operaciones = new ArrayList<>();
+	private final Queue<Integer> productosCreados = new ConcurrentLinkedQueue<>();
+	private final Queue<Integer> categoriasCreadas = new ConcurrentLinkedQueue<>();
+	private final AtomicLong secuencia = new AtomicLong();
+
+	private final List<Integer> idsCategorias = new ArrayList<>();
+	private final List<Integer> idsProductos = new ArrayList<>();
+	private final List<Integer> idsCalientes = new ArrayList<>();
+	private final List<Integer> idsEditables = new ArrayList<>();
+
+	private volatile boolean midiendo;
+	private int pesoTotal;
+
+	@Test
+	void cargaMixtaSobreTodosLosEndpoints() throws Exception {
+		sembrarCatalogo();
+		definirOperaciones();
+
+		LongAdder eventosStockBajo = new LongAdder();
+		HttpRequest alertas = HttpRequest.newBuilder(uri(PRODUCTOS + "/stock-bajo/alertas")).GET().build();
+		var suscripcion = cliente.sendAsync(alertas, HttpResponse.BodyHandlers.ofLines())
+				.thenAccept(respuesta -> respuesta.body()
+						.filter(linea -> linea.startsWith("event:stock-bajo"))
+						.forEach(linea -> eventosStockBajo.increment()));
+
+		long fin = System.nanoTime() + TimeUnit.SECONDS.toNanos(CALENTAMIENTO + SEGUNDOS);
+		long inicioMedicion = System.nanoTime() + TimeUnit.SECONDS.toNanos(CALENTAMIENTO);
+		ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+		for (int i = 0; i < HILOS; i++) {
+			ejecutor.submit(() -> {
+				while (System.nanoTime() < fin) {
+					if (!midiendo && System.nanoTime() >= inicioMedicion) {
+						midiendo = true;
+					}
+					ejecutar(elegirOperacion());
+				}
+			});
+		}
+		ejecutor.shutdown();
+		assertTrue(ejecutor.awaitTermination(CALENTAMIENTO + SEGUNDOS + 60L, TimeUnit.SECONDS));
+		suscripcion.cancel(true);
+
+		String reporte = reporte(eventosStockBajo.sum());
+		log.info("Reporte de carga:\n{}", reporte);
+		Files.createDirectories(Path.of("target"));
+		Files.writeString(Path.of("target", "carga-resultados.txt"), reporte);
+
+		long peticiones = estadisticas.values().stream().mapToLong(e -> e.latencias.getTotalCount()).sum();
+		long errores = estadisticas.values().stream().mapToLong(e -> e.errores.sum()).sum();
+		assertTrue(peticiones > 0, "No se completó ninguna petición");
+		assertTrue(errores * 100 < peticiones, "La tasa de errores supera el 1%");
+		assertTrue(productoRepository.findAll().stream().allMatch(p -> p.getStockActual() >= 0),
+				"Existen productos con stock negativo");
+	}
+
+	private void sembrarCatalogo() throws IOException {
+		for (int i = 0; i < CANTIDAD_CATEGORIAS; i++) {
+			CategoriaProducto categoria = new CategoriaProducto("Categoria carga " + i, "Categoría sembrada para la prueba de carga");
+			idsCategorias.add(categoriaProductoService.crearCategoria(categoria).getIdCategoria());
+		}
+
+		StringBuilder csv = new StringBuilder(CABECERA_CSV);
+		for (int i = 0; i < PRODUCTOS_CALIENTES; i++) {
+			csv.append(filaCsv("Caliente " + i, 1_000_000, i));
+		}
+		for (int i = 0; i < PRODUCTOS_EDITABLES; i++) {
+			csv.append(filaCsv("Editable " + i, 500, i));
+		}
+		for (int i = 0; i < CANTIDAD_PRODUCTOS; i++) {
+			csv.append(filaCsv(TERMINOS[i % TERMINOS.length] + " " + i, i % 300, i));
+		}
+		importacionProductoService.importarCsv(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+		for (Producto producto : productoRepository.findAll()) {
+			idsProductos.add(producto.getIdProducto());
+			if (producto.getNombreProducto().startsWith("Caliente ")) {
+				idsCalientes.add(producto.getIdProducto());
+			} else if (producto.getNombreProducto().startsWith("Editable ")) {
+				idsEditables.add(producto.getIdProducto());
+			}
+		}
+	}
+
+	private String filaCsv(String nombre, int stock, int i) {
+		String precio = (100 + i % 9000) / 100 + "." + String.format("%02d", i % 100);
+		return nombre + ",Producto de carga," + precio + ",0.50," + stock + ",Activo," +
+			   idsCategorias.get(i % idsCategorias.size()) + "\n";
+	}
+
+	private void definirOperaciones() {
+		// Lecturas de productos
+		operacion("GET productos/{id}", 300, () -> get(PRODUCTOS + "/" + aleatorio(idsProductos)));
+		operacion("GET productos/lote", 40, () -> get(PRODUCTOS + "/lote?ids=" + aleatorio(idsProductos) + "," +
+				aleatorio(idsProductos) + "," + aleatorio(idsCalientes) + "," + aleatorio(idsProductos)));
+		operacion("GET productos", 20, () -> get(PRODUCTOS + "?cursor=" + aleatorio(idsProductos) + "&limite=50"));
+		operacion("GET productos/buscar", 80, () -> get(PRODUCTOS + "/buscar?nombre=" + aleatorio(TERMINOS) + "+" +
+				ThreadLocalRandom.current().nextInt(100)));
+		operacion("GET productos/rango-precios", 40, () -> {
+			int minimo = ThreadLocalRandom.current().nextInt(1, 80);
+			return get(PRODUCTOS + "/rango-precios?precioMin=" + minimo + "&precioMax=" + (minimo + 5) + "&estado=Activo");
+		});
+		operacion("GET productos/estado/{estado}", 15, () -> get(PRODUCTOS + "/estado/Activo?cursor=" + aleatorio(idsProductos)));
+		operacion("GET productos/categoria/{id}", 15, () -> get(PRODUCTOS + "/categoria/" + aleatorio(idsCategorias)));
+		operacion("GET productos/disponibles", 15, () -> get(PRODUCTOS + "/disponibles?cursor=" + aleatorio(idsProductos)));
+		operacion("GET productos/stock-bajo", 10, () -> get(PRODUCTOS + "/stock-bajo?stockMinimo=10"));
+		operacion("GET productos/exportar", 1, () -> get(PRODUCTOS + "/exportar"));
+
+		// Ráfagas de venta sobre productos calientes y cola larga
+		operacion("PUT productos/{id}/disminuir-stock (caliente)", 150, () ->
+				put(PRODUCTOS + "/" + aleatorio(idsCalientes) + "/disminuir-stock", "{\"cantidad\":1}"));
+		operacion("PUT productos/{id}/disminuir-stock", 40, () ->
+				put(PRODUCTOS + "/" + aleatorio(idsProductos) + "/disminuir-stock", "{\"cantidad\":1}"));
+		operacion("PUT productos/disminuir-stock (lote)", 20, () ->
+				put(PRODUCTOS + "/disminuir-stock", "[{\"idProducto\":" + aleatorio(idsCalientes) + ",\"cantidad\":1}," +
+						"{\"idProducto\":" + aleatorio(idsCalientes) + ",\"cantidad\":2}]"));
+		operacion("PUT productos/{id}/aumentar-stock", 30, () ->
+				put(PRODUCTOS + "/" + aleatorio(idsProductos) + "/aumentar-stock", "{\"cantidad\":5,\"precioCompra\":0.80}"));
+
+		// Mantenimiento del catálogo
+		operacion("PUT productos/{id}/estado", 10, () ->
+				put(PRODUCTOS + "/" + aleatorio(idsEditables) + "/estado",
+						"{\"nuevoEstado\":\"" + (ThreadLocalRandom.current().nextBoolean() ? "Activo" : "Inactivo") + "\"}"));
+		operacion("PUT productos/{id}", 10, () -> {
+			int indice = ThreadLocalRandom.current().nextInt(idsEditables.size());
+			return put(PRODUCTOS + "/" + idsEditables.get(indice), "{\"nombreProducto\":\"Editable " + indice + "\"," +
+					"\"precioVenta\":" + ThreadLocalRandom.current().nextInt(2, 50) + ",\"stockActual\":500," +
+					"\"estadoProducto\":\"Activo\",\"categoria\":{\"idCategoria\":" + aleatorio(idsCategorias) + "}}");
+		});
+		operacion("POST productos", 5, () -> post(PRODUCTOS, "application/json",
+				"{\"nombreProducto\":\"Nuevo " + secuencia.incrementAndGet() + "\",\"precioVenta\":3.50,\"stockActual\":20," +
+				"\"estadoProducto\":\"Activo\",\"categoria\":{\"idCategoria\":" + aleatorio(idsCategorias) + "}}",
+				productosCreados));
+		operacion("DELETE productos/{id}", 4, () -> eliminar(PRODUCTOS, productosCreados));
+		operacion("POST productos/importar", 1, () -> {
+			StringBuilder csv = new StringBuilder(CABECERA_CSV);
+			for (int i = 0; i < 20; i++) {
+				csv.append(filaCsv("Importado " + secuencia.incrementAndGet(), 10, i));
+			}
+			return post(PRODUCTOS + "/importar", "text/csv", csv.toString(), null);
+		});
+
+		// Categorías
+		operacion("GET categorias", 40, () -> get(CATEGORIAS));
+		operacion("GET categorias/buscar", 20, () -> get(CATEGORIAS + "/buscar?texto=carga+" +
+				ThreadLocalRandom.current().nextInt(CANTIDAD_CATEGORIAS)));
+		operacion("GET categorias/{id}/existe", 20, () -> get(CATEGORIAS + "/" + aleatorio(idsCategorias) + "/existe"));
+		operacion("PUT categorias/{id}", 10, () -> {
+			int indice = ThreadLocalRandom.current().nextInt(idsCategorias.size());
+			return put(CATEGORIAS + "/" + idsCategorias.get(indice), "{\"nombreCategoria\":\"Categoria carga " + indice + "\"," +
+					"\"descripcion\":\"Revisión " + secuencia.incrementAndGet() + "\"}");
+		});
+		operacion("POST categorias", 3, () -> post(CATEGORIAS, "application/json",
+				"{\"nombreCategoria\":\"Temporal " + secuencia.incrementAndGet() + "\"}", categoriasCreadas));
+		operacion("DELETE categorias/{id}", 3, () -> eliminar(CATEGORIAS, categoriasCreadas));
+	}
+
+	private void operacion(String nombre, int peso, Supplier<Integer> peticion) {
+		Estadistica estadistica = new Estadistica();
+		estadisticas.put(nombre, estadistica);
+		pesoTotal += peso;
+		operaciones.add(new Operacion(pesoTotal, peticion, estadistica));
+	}
+
+	private Operacion elegirOperacion() {
+		int valor = ThreadLocalRandom.current().nextInt(pesoTotal);
+		for (Operacion operacion : operaciones) {
+			if (valor < operacion.pesoAcumulado) {
+				return operacion;
+			}
+		}
+		return operaciones.get(operaciones.size() - 1);
+	}
+
+	private void ejecutar(Operacion operacion) {
+		long inicio = System.nanoTime();
+		int estado;
+		try {
+			estado = operacion.peticion.get();
+		} catch (RuntimeException e) {
+			estado = -1;
+		}
+		if (!midiendo || estado == 0) {
+			return;
+		}
+		long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio);
+		operacion.estadistica.latencias.recordValue(Math.min(micros, LATENCIA_MAXIMA_MICROS));
+		if (estado >= 500 || estado < 0) {
+			operacion.estadistica.errores.increment();
+		} else if (estado >= 400) {
+			operacion.estadistica.rechazos.increment();
+		}
+	}
+
+	private int get(String ruta) {
+		return enviar(HttpRequest.newBuilder(uri(ruta)).GET().build(), null, null);
+	}
+
+	private int put(String ruta, String json) {
+		return enviar(HttpRequest.newBuilder(uri(ruta))
+				.header("Content-Type", "application/json")
+				.PUT(HttpRequest.BodyPublishers.ofString(json))
+				.build(), null, null);
+	}
+
+	private int post(String ruta, String tipo, String cuerpo, Queue<Integer> creados) {
+		return enviar(HttpRequest.newBuilder(uri(ruta))
+				.header("Content-Type", tipo)
+				.POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+				.build(), creados, ruta.equals(PRODUCTOS) ? "\"idProducto\":" : "\"idCategoria\":");
+	}
+
+	/**
+	 * Elimina un recurso creado durante la prueba; devuelve 0 (no se mide) si aún no hay ninguno.
+	 */
+	private int eliminar(String ruta, Queue<Integer> creados) {
+		Integer id = creados.poll();
+		if (id == null) {
+			return 0;
+		}
+		return enviar(HttpRequest.newBuilder(uri(ruta + "/" + id)).DELETE().build(), null, null);
+	}
+
+	private int enviar(HttpRequest peticion, Queue<Integer> creados, String campoId) {
+		try {
+			HttpResponse<String> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.ofString());
+			if (creados != null && respuesta.statusCode() == 201) {
+				creados.add(extraerId(respuesta.body(), campoId));
+			}
+			return respuesta.statusCode();
+		} catch (IOException e) {
+			return -1;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+	}
+
+	private static Integer extraerId(String json, String campo) {
+		int inicio = json.indexOf(campo) + campo.length();
+		int fin = inicio;
+		while (fin < json.length() && Character.isDigit(json.charAt(fin))) {
+			fin++;
+		}
+		return Integer.valueOf(json.substring(inicio, fin));
+	}
+
+	private URI uri(String ruta) {
+		return URI.create("http://localhost:" + puerto + ruta);
+	}
+
+	private static <T> T aleatorio(List<T> valores) {
+		return valores.get(ThreadLocalRandom.current().nextInt(valores.size()));
+	}
+
+	private static String aleatorio(String[] valores) {
+		return valores[ThreadLocalRandom.current().nextInt(valores.length)];
+	}
+
+	private String reporte(long eventosStockBajo) {
+		StringBuilder reporte = new StringBuilder();
+		reporte.append(String.format("%nCarga mixta: %d s (+%d s de calentamiento), %d hilos cliente, %d productos, hilos virtuales=%s%n",
+				SEGUNDOS, CALENTAMIENTO, HILOS, idsProductos.size(),
+				environment.getProperty("spring.threads.virtual.enabled", "false")));
+		reporte.append(String.format("%-48s %9s %9s %9s %9s %9s %9s %7s %7s%n",
+				"Endpoint", "Total", "Req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "% 4xx", "% error"));
+
+		Histogram total = new Histogram(LATENCIA_MAXIMA_MICROS, 3);
+		long rechazos = 0;
+		long errores = 0;
+		for (Map.Entry<String, Estadistica> entrada : estadisticas.entrySet()) {
+			Estadistica estadistica = entrada.getValue();
+			total.add(estadistica.latencias);
+			rechazos += estadistica.rechazos.sum();
+			errores += estadistica.errores.sum();
+			reporte.append(linea(entrada.getKey(), estadistica.latencias, estadistica.rechazos.sum(), estadistica.errores.sum()));
+		}
+		reporte.append(linea("TOTAL", total, rechazos, errores));
+		reporte.append(String.format("Eventos SSE stock-bajo recibidos: %d%n", eventosStockBajo));
+		return reporte.toString();
+	}
+
+	private String linea(String nombre, Histogram latencias, long rechazos, long errores) {
+		long cantidad = latencias.getTotalCount();
+		if (cantidad == 0) {
+			return String.format("%-48s %9d%n", nombre, 0);
+		}
+		return String.format("%-48s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %7.2f %7.2f%n", nombre, cantidad,
+				(double) cantidad / SEGUNDOS,
+				latencias.getValueAtPercentile(50) / 1000.0,
+				latencias.getValueAtPercentile(90) / 1000.0,
+				latencias.getValueAtPercentile(99) / 1000.0,
+				latencias.getMaxValue() / 1000.0,
+				rechazos * 100.0 / cantidad,
+				errores * 100.0 / cantidad);
+	}
+
+	private record Operacion(int pesoAcumulado, Supplier<Integer> peticion, Estadistica estadistica) {
+	}
+
+	private static final class Estadistica {
+
+		private final ConcurrentHistogram latencias = new ConcurrentHistogram(LATENCIA_MAXIMA_MICROS, 3);
+		private final LongAdder rechazos = new LongAdder();
+		private final LongAdder errores = new LongAdder();
+	}
+}
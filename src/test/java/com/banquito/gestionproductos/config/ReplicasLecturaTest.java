@@ -0,0 +1,161 @@
+package com.banquito.gestionproductos.config;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import com.banquito.gestionproductos.service.CategoriaProductoService;
+import com.banquito.gestionproductos.service.EtiquetasCatalogo;
+import com.banquito.gestionproductos.service.ProductoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Dos bases H2: "primario" y "replica". La réplica no recibe los datos (no hay replicación), así una
+ * lectura que devuelve vacío prueba que fue enrutada a la réplica. La primera URL de réplica no
+ * responde y debe saltarse.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:primario;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+		"productos.replicas.habilitadas=true",
+		"productos.replicas.urls=jdbc:h2:tcp://localhost:1/caida,jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:replica-esquema.sql'",
+		"productos.replicas.reintento=1h",
+		"productos.replicas.lectura-propia=5s"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReplicasLecturaTest {
+
+	private static final String PRODUCTOS = "/api/gestion-productos/productos";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:replica", "sa", ""));
+
+	private CategoriaProducto categoria;
+
+	@BeforeEach
+	void limpiar() {
+		replica.update("DELETE FROM productos");
+		replica.update("DELETE FROM categorias_producto");
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+		categoria = categoriaProductoService.crearCategoria(new CategoriaProducto("Hogar", null));
+	}
+
+	@Test
+	void lasTransaccionesDeSoloLecturaVanALaReplica() {
+		productoService.crearProducto(new Producto("Escoba", null, new BigDecimal("3.00"), 10, "Activo", categoria));
+
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM productos", Integer.class));
+		assertTrue(productoService.obtenerTodosLosProductos(null, null).contenido().isEmpty());
+	}
+
+	@Test
+	void elClienteQueEscribeLeeDelPrimarioDuranteLaVentana() throws Exception {
+		String producto = "{\"nombreProducto\":\"Trapeador\",\"precioVenta\":5.00,\"stockActual\":4," +
+				"\"estadoProducto\":\"Activo\",\"categoria\":{\"idCategoria\":" + categoria.getIdCategoria() + "}}";
+		mockMvc.perform(post(PRODUCTOS).header(FiltroLecturaPropia.CABECERA_CLIENTE, "caja-1")
+						.contentType(MediaType.APPLICATION_JSON).content(producto))
+				.andExpect(status().isCreated());
+
+		mockMvc.perform(get(PRODUCTOS).header(FiltroLecturaPropia.CABECERA_CLIENTE, "caja-1"))
+				.andExpect(jsonPath("$.contenido.length()").value(1));
+		mockMvc.perform(get(PRODUCTOS).header(FiltroLecturaPropia.CABECERA_CLIENTE, "caja-2"))
+				.andExpect(jsonPath("$.contenido.length()").value(0));
+	}
+
+	@Test
+	void unaReplicaAtrasadaNoLeDevuelveDesdeLaCacheUnValorViejoAQuienEscribio() throws Exception {
+		Integer id = productoService.crearProducto(new Producto("Balde", null, new BigDecimal("2.00"), 8, "Activo", categoria))
+				.getIdProducto();
+		// La réplica todavía no recibió el cambio de nombre que se hará en el primario
+		replica.update("INSERT INTO categorias_producto (id_categoria, nombre_categoria) VALUES (?, 'Hogar')",
+				categoria.getIdCategoria());
+		replica.update("INSERT INTO productos (id_producto, nombre_producto, precio_venta, stock_actual, estado_producto, " +
+				"id_categoria) VALUES (?, 'Balde', 2.00, 8, 'Activo', ?)", id, categoria.getIdCategoria());
+
+		String cambio = "{\"nombreProducto\":\"Cubeta\",\"precioVenta\":2.00,\"stockActual\":8," +
+				"\"estadoProducto\":\"Activo\",\"categoria\":{\"idCategoria\":" + categoria.getIdCategoria() + "}}";
+		mockMvc.perform(put(PRODUCTOS + "/" + id).header(FiltroLecturaPropia.CABECERA_CLIENTE, "caja-1")
+						.contentType(MediaType.APPLICATION_JSON).content(cambio))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get(PRODUCTOS + "/" + id).header(FiltroLecturaPropia.CABECERA_CLIENTE, "caja-2"))
+				.andExpect(jsonPath("$.nombreProducto").value("Balde"));
+		mockMvc.perform(get(PRODUCTOS + "/" + id).header(FiltroLecturaPropia.CABECERA_CLIENTE, "caja-1"))
+				.andExpect(jsonPath("$.nombreProducto").value("Cubeta"));
+		mockMvc.perform(get(PRODUCTOS + "/lote").param("ids", id.toString()).header(FiltroLecturaPropia.CABECERA_CLIENTE, "caja-1"))
+				.andExpect(jsonPath("$.productos[0].nombreProducto").value("Cubeta"));
+
+		// Al cerrarse la ventana se descarta lo que se cacheó desde la réplica atrasada
+		Cache cache = cacheManager.getCache(ProductoService.CACHE_PRODUCTOS);
+		for (int i = 0; i < 100 && cache.get(id) != null; i++) {
+			Thread.sleep(100);
+		}
+		assertNull(cache.get(id));
+	}
+
+	@Test
+	void laEtiquetaDelListadoAvanzaAlCerrarseLaVentana() throws Exception {
+		// Instancia propia: los cambios de las otras pruebas no abren ventanas en ella
+		EtiquetasCatalogo etiquetas = new EtiquetasCatalogo(true, Duration.ofMillis(300));
+		String antes = etiquetas.etagProductos();
+
+		etiquetas.alModificarProducto(new ProductoModificadoEvent(1, null));
+		// Otro cliente puede leer de una réplica que todavía no tiene el cambio
+		assertEquals(antes, etiquetas.etagProductos());
+		// El que escribió lee del primario y recibe la etiqueta al día
+		DataSourceReplicas.leerDelPrimario(true);
+		try {
+			assertNotEquals(antes, etiquetas.etagProductos());
+		} finally {
+			DataSourceReplicas.leerDelPrimario(false);
+		}
+
+		Thread.sleep(400);
+		assertNotEquals(antes, etiquetas.etagProductos());
+	}
+}
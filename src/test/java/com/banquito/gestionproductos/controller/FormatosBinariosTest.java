@@ -0,0 +1,81 @@
+package com.banquito.gestionproductos.controller;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import com.banquito.gestionproductos.service.CategoriaProductoService;
+import com.banquito.gestionproductos.service.ProductoService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class FormatosBinariosTest {
+
+	private static final String PRODUCTOS = "/api/gestion-productos/productos";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	@BeforeEach
+	void prepararProducto() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto categoria = categoriaProductoService.crearCategoria(new CategoriaProducto("Limpieza", null));
+		productoService.crearProducto(new Producto("Jabón", null, new BigDecimal("1.50"), 30, "Activo", categoria));
+	}
+
+	@Test
+	void respondeEnCborSoloSiSeSolicita() throws Exception {
+		mockMvc.perform(get(PRODUCTOS))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+
+		byte[] cuerpo = mockMvc.perform(get(PRODUCTOS).header(HttpHeaders.ACCEPT, "application/cbor"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("application/cbor"))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		JsonNode pagina = new ObjectMapper(new CBORFactory()).readTree(cuerpo);
+		assertEquals("Jabón", pagina.get("contenido").get(0).get("nombreProducto").asText());
+	}
+
+	@Test
+	void respondeEnSmileSiSeSolicita() throws Exception {
+		mockMvc.perform(get("/api/gestion-productos/categorias").header(HttpHeaders.ACCEPT, "application/x-jackson-smile"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("application/x-jackson-smile"));
+	}
+}
@@ -0,0 +1,97 @@
+package com.banquito.gestionproductos.controller;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import com.banquito.gestionproductos.service.CategoriaProductoService;
+import com.banquito.gestionproductos.service.ProductoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductoControllerEtagTest {
+
+	private static final String PRODUCTOS = "/api/gestion-productos/productos";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	private Integer idProducto;
+
+	@BeforeEach
+	void prepararProducto() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto categoria = categoriaProductoService.crearCategoria(new CategoriaProducto("Papelería", null));
+		Producto producto = new Producto("Cuaderno", null, new BigDecimal("2.00"), 10, "Activo", categoria);
+		idProducto = productoService.crearProducto(producto).getIdProducto();
+	}
+
+	@Test
+	void respondeNoModificadoHastaQueCambiaElProducto() throws Exception {
+		String etag = mockMvc.perform(get(PRODUCTOS + "/" + idProducto))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		String etagLista = mockMvc.perform(get(PRODUCTOS))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get(PRODUCTOS + "/" + idProducto).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+		mockMvc.perform(get(PRODUCTOS).header(HttpHeaders.IF_NONE_MATCH, etagLista))
+				.andExpect(status().isNotModified());
+
+		productoService.disminuirStock(idProducto, 1);
+
+		String etagNueva = mockMvc.perform(get(PRODUCTOS + "/" + idProducto).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(etag, etagNueva);
+		mockMvc.perform(get(PRODUCTOS).header(HttpHeaders.IF_NONE_MATCH, etagLista))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void rechazaLaEdicionConUnaVersionAnterior() throws Exception {
+		String etag = mockMvc.perform(get(PRODUCTOS + "/" + idProducto))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		String cuerpo = "{\"nuevoEstado\":\"Inactivo\"}";
+
+		mockMvc.perform(put(PRODUCTOS + "/" + idProducto + "/estado").header(HttpHeaders.IF_MATCH, etag)
+						.contentType(MediaType.APPLICATION_JSON).content(cuerpo))
+				.andExpect(status().isOk());
+		mockMvc.perform(put(PRODUCTOS + "/" + idProducto + "/estado").header(HttpHeaders.IF_MATCH, etag)
+						.contentType(MediaType.APPLICATION_JSON).content(cuerpo))
+				.andExpect(status().isPreconditionFailed());
+	}
+}
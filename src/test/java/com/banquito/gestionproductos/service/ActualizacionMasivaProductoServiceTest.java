@@ -0,0 +1,91 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ActualizacionMasivaProductoServiceTest {
+
+	@Autowired
+	private ActualizacionMasivaProductoService actualizacionMasivaProductoService;
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	private CategoriaProducto lacteos;
+	private CategoriaProducto panaderia;
+	private Integer idLeche;
+	private Integer idPan;
+
+	@BeforeEach
+	void prepararProductos() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		lacteos = categoriaProductoService.crearCategoria(new CategoriaProducto("Lácteos", null));
+		panaderia = categoriaProductoService.crearCategoria(new CategoriaProducto("Panadería", null));
+		Producto leche = new Producto("Leche", null, new BigDecimal("1.00"), 10, "Activo", lacteos);
+		leche.setCostoCompra(new BigDecimal("0.80"));
+		idLeche = productoService.crearProducto(leche).getIdProducto();
+		productoService.crearProducto(new Producto("Queso", null, new BigDecimal("4.00"), 5, "Inactivo", lacteos));
+		idPan = productoService.crearProducto(new Producto("Pan", null, new BigDecimal("0.20"), 50, "Activo", panaderia))
+				.getIdProducto();
+	}
+
+	@Test
+	void ajustaPreciosSoloDentroDelFiltroYActualizaLaCache() {
+		// Deja la leche en caché para comprobar que la actualización masiva la invalida
+		productoService.obtenerProductoPorId(idLeche);
+
+		assertEquals(2, actualizacionMasivaProductoService.ajustarPrecios(new BigDecimal("10"), lacteos.getIdCategoria(), null)
+				.productosActualizados());
+		assertEquals(new BigDecimal("1.10"), productoService.obtenerProductoPorId(idLeche).get().precioVenta());
+		assertEquals(new BigDecimal("0.20"), productoService.obtenerProductoPorId(idPan).get().precioVenta());
+
+		// Solo la leche tiene costo de compra: 0.80 * 1.25
+		assertEquals(1, actualizacionMasivaProductoService.aplicarMargen(null, lacteos.getIdCategoria(), null)
+				.productosActualizados());
+		assertEquals(new BigDecimal("1.00"), productoService.obtenerProductoPorId(idLeche).get().precioVenta());
+	}
+
+	@Test
+	void cambiaEstadoYMueveDeCategoria() {
+		assertEquals(1, actualizacionMasivaProductoService.cambiarEstado("Inactivo", lacteos.getIdCategoria(), "Activo")
+				.productosActualizados());
+		assertEquals(2, actualizacionMasivaProductoService.moverCategoria(panaderia.getIdCategoria(), lacteos.getIdCategoria(), null)
+				.productosActualizados());
+
+		ProductoResumen leche = productoService.obtenerProductoPorId(idLeche).get();
+		assertEquals("Inactivo", leche.estadoProducto());
+		assertEquals(panaderia.getIdCategoria(), leche.idCategoria());
+		assertEquals(3, productoService.obtenerProductosPorCategoria(panaderia.getIdCategoria(), null, null).contenido().size());
+	}
+
+	@Test
+	void exigeAlMenosUnFiltro() {
+		assertThrows(RuntimeException.class, () -> actualizacionMasivaProductoService.cambiarEstado("Inactivo", null, null));
+	}
+}
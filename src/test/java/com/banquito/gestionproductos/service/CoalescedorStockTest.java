@@ -0,0 +1,114 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "productos.stock.coalescencia.habilitada=true")
+@ActiveProfiles("test")
+class CoalescedorStockTest {
+
+	private static final Logger log = LoggerFactory.getLogger(CoalescedorStockTest.class);
+
+	private static final int STOCK_INICIAL = 1000;
+	private static final int HILOS = 32;
+	private static final int VENTAS_POR_HILO = 50;
+
+	@Autowired
+	private CoalescedorStock coalescedorStock;
+
+	@Autowired
+	private LibroMovimientosStock libroMovimientosStock;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	private Integer idProducto;
+
+	@BeforeEach
+	void prepararProducto() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto categoria = categoriaProductoRepository.save(new CategoriaProducto("Ofertas", null));
+		idProducto = productoRepository.save(new Producto("Televisor", null, new BigDecimal("300.00"), STOCK_INICIAL, "Activo", categoria))
+				.getIdProducto();
+	}
+
+	@Test
+	void ventasAgrupadasNoSobrevenden() throws Exception {
+		AtomicInteger exitosas = new AtomicInteger();
+		AtomicInteger rechazadas = new AtomicInteger();
+		ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+		List<Future<?>> tareas = new ArrayList<>();
+		long inicio = System.nanoTime();
+		for (int i = 0; i < HILOS; i++) {
+			tareas.add(ejecutor.submit(() -> {
+				for (int j = 0; j < VENTAS_POR_HILO; j++) {
+					try {
+						coalescedorStock.disminuirStock(idProducto, 1);
+						exitosas.incrementAndGet();
+					} catch (RuntimeException e) {
+						rechazadas.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Future<?> tarea : tareas) {
+			tarea.get();
+		}
+		ejecutor.shutdown();
+		double segundos = (System.nanoTime() - inicio) / 1e9;
+		log.info("Ventas agrupadas: {} operaciones en {} s ({} ops/s)", HILOS * VENTAS_POR_HILO,
+				String.format("%.2f", segundos), String.format("%.0f", HILOS * VENTAS_POR_HILO / segundos));
+
+		Producto producto = productoRepository.findById(idProducto).get();
+		assertEquals(STOCK_INICIAL, exitosas.get());
+		assertEquals(HILOS * VENTAS_POR_HILO - STOCK_INICIAL, rechazadas.get());
+		assertEquals(0, producto.getStockActual());
+		assertEquals("Agotado", producto.getEstadoProducto());
+	}
+
+	@Test
+	void cadaLlamadorRecibeSuPropioResultado() {
+		Producto producto = coalescedorStock.aumentarStock(idProducto, 5, new BigDecimal("200.00"));
+		assertEquals(STOCK_INICIAL + 5, producto.getStockActual());
+		assertEquals(new BigDecimal("250.00"), producto.getPrecioVenta());
+
+		RuntimeException error = assertThrows(RuntimeException.class,
+				() -> coalescedorStock.disminuirStock(idProducto, STOCK_INICIAL + 6));
+		assertEquals("Stock insuficiente. Stock actual: 1005, cantidad solicitada: 1006", error.getMessage());
+		assertThrows(RuntimeException.class, () -> coalescedorStock.disminuirStock(-1, 1));
+	}
+
+	@Test
+	void noVendeLoQueYaSalioPorElLibro() {
+		libroMovimientosStock.registrar(idProducto, -(STOCK_INICIAL - 3));
+
+		assertThrows(RuntimeException.class, () -> coalescedorStock.disminuirStock(idProducto, 4));
+		coalescedorStock.disminuirStock(idProducto, 3);
+		assertEquals(0, libroMovimientosStock.obtenerStock(idProducto).stockActual());
+	}
+}
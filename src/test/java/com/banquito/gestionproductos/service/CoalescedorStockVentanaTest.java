@@ -0,0 +1,86 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"productos.stock.coalescencia.habilitada=true",
+				"productos.stock.coalescencia.ventana=500ms"})
+@ActiveProfiles("test")
+class CoalescedorStockVentanaTest {
+
+	private static final int STOCK_INICIAL = 20;
+	private static final int VENTAS = 8;
+
+	@Autowired
+	private CoalescedorStock coalescedorStock;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	private Integer idProducto;
+
+	@BeforeEach
+	void prepararProducto() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto categoria = categoriaProductoRepository.save(new CategoriaProducto("Audio", null));
+		idProducto = productoRepository.save(new Producto("Parlante", null, new BigDecimal("40.00"), STOCK_INICIAL, "Activo", categoria))
+				.getIdProducto();
+	}
+
+	@Test
+	void losMovimientosDeLaVentanaSeAplicanEnUnSoloLote() throws Exception {
+		long versionInicial = productoRepository.findById(idProducto).get().getVersion();
+		CountDownLatch salida = new CountDownLatch(1);
+		ExecutorService ejecutor = Executors.newFixedThreadPool(VENTAS + 1);
+		List<Future<Producto>> ventas = new ArrayList<>();
+		for (int i = 0; i < VENTAS; i++) {
+			ventas.add(ejecutor.submit(() -> {
+				salida.await();
+				return coalescedorStock.disminuirStock(idProducto, 2);
+			}));
+		}
+		// No alcanza en ningún orden de llegada: se rechaza sin afectar a las demás del lote
+		Future<Producto> rechazada = ejecutor.submit(() -> {
+			salida.await();
+			return coalescedorStock.disminuirStock(idProducto, STOCK_INICIAL + 1);
+		});
+		salida.countDown();
+
+		for (Future<Producto> venta : ventas) {
+			venta.get();
+		}
+		ExecutionException error = assertThrows(ExecutionException.class, rechazada::get);
+		assertTrue(error.getCause().getMessage().startsWith("Stock insuficiente"));
+		ejecutor.shutdown();
+
+		Producto producto = productoRepository.findById(idProducto).get();
+		assertEquals(STOCK_INICIAL - 2 * VENTAS, producto.getStockActual());
+		// Un solo UPDATE para todo el lote
+		assertEquals(versionInicial + 1, producto.getVersion());
+	}
+}
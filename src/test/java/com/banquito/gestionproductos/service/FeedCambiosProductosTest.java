@@ -0,0 +1,183 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+				properties = {"productos.cambios.historial=4", "productos.cambios.buffer-suscriptor=2",
+								"productos.cambios.latido-ms=3600000"})
+@ActiveProfiles("test")
+class FeedCambiosProductosTest {
+
+	@LocalServerPort
+	private int puerto;
+
+	@Autowired
+	private FeedCambiosProductos feedCambiosProductos;
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	private final HttpClient cliente = HttpClient.newHttpClient();
+
+	private Integer idProducto;
+
+	@BeforeEach
+	void prepararProducto() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto categoria = categoriaProductoService.crearCategoria(new CategoriaProducto("Bebidas", null));
+		Producto producto = new Producto("Agua", null, new BigDecimal("0.50"), 100, "Activo", categoria);
+		idProducto = productoService.crearProducto(producto).getIdProducto();
+	}
+
+	@Test
+	void reanudaDesdeElUltimoIdRecibido() throws Exception {
+		long desde = feedCambiosProductos.ultimoId();
+		productoService.disminuirStock(idProducto, 1);
+		productoService.disminuirStock(idProducto, 2);
+
+		try (Stream<String> lineas = abrir(desde)) {
+			Iterator<String> eventos = lineas.iterator();
+			assertEquals("id:" + (desde + 1), siguiente(eventos, "id:"));
+			assertTrue(siguiente(eventos, "data:").contains("\"stockActual\":99"));
+			assertEquals("id:" + (desde + 2), siguiente(eventos, "id:"));
+			assertTrue(siguiente(eventos, "data:").contains("\"stockActual\":97"));
+
+			// Los cambios posteriores a la suscripción llegan en vivo
+			productoService.cambiarEstadoProducto(idProducto, "Inactivo", null);
+			assertEquals("id:" + (desde + 3), siguiente(eventos, "id:"));
+			assertTrue(siguiente(eventos, "data:").contains("\"estadoProducto\":\"Inactivo\""));
+		}
+	}
+
+	@Test
+	void pideResincronizarSiElIdYaNoEstaEnElHistorial() throws Exception {
+		long desde = feedCambiosProductos.ultimoId();
+		for (int i = 0; i < 6; i++) {
+			productoService.disminuirStock(idProducto, 1);
+		}
+
+		try (Stream<String> lineas = abrir(desde)) {
+			Iterator<String> eventos = lineas.iterator();
+			assertEquals("id:" + feedCambiosProductos.ultimoId(), siguiente(eventos, "id:"));
+			assertEquals("event:resync", siguiente(eventos, "event:"));
+		}
+	}
+
+	@Test
+	void descartaUnCambioConVersionAnteriorALaPublicada() throws Exception {
+		Producto producto = productoRepository.findById(idProducto).get();
+		long desde = feedCambiosProductos.ultimoId();
+		// El listener de la transacción que escribió la versión 5 corre antes que el de la versión 4
+		publicar(producto, 5L, 80);
+		publicar(producto, 4L, 90);
+		publicar(producto, 6L, 70);
+
+		assertEquals(desde + 2, feedCambiosProductos.ultimoId());
+		try (Stream<String> lineas = abrir(desde)) {
+			Iterator<String> eventos = lineas.iterator();
+			assertTrue(siguiente(eventos, "data:").contains("\"stockActual\":80"));
+			assertTrue(siguiente(eventos, "data:").contains("\"stockActual\":70"));
+		}
+	}
+
+	@Test
+	void unSuscriptorQueNoAlcanzaRecibeResync() throws Exception {
+		Producto producto = productoRepository.findById(idProducto).get();
+		// La respuesta se abre con el primer evento enviado
+		long desde = feedCambiosProductos.ultimoId();
+		publicar(producto, 1L, 1);
+		try (Stream<String> lineas = abrir(desde)) {
+			Iterator<String> eventos = lineas.iterator();
+			// Publicar es mucho más rápido que escribir en el socket: la cola de 2 se llena
+			for (int i = 2; i <= 500; i++) {
+				publicar(producto, (long) i, i);
+			}
+			long ultimo = feedCambiosProductos.ultimoId();
+			// El resync lleva el id hasta el que hay que recargar; después siguen los cambios hasta el último
+			boolean resync = false;
+			String id = null;
+			while (!("id:" + ultimo).equals(id)) {
+				String linea = siguiente(eventos, "");
+				if (linea.startsWith("id:")) {
+					id = linea;
+				}
+				resync |= linea.equals("event:resync");
+			}
+			resync |= siguiente(eventos, "event:").equals("event:resync");
+			assertTrue(resync);
+		}
+	}
+
+	@Test
+	void unClienteDesconectadoSeDescartaAlEnviarle() throws Exception {
+		Producto producto = productoRepository.findById(idProducto).get();
+		long desde = feedCambiosProductos.ultimoId();
+		publicar(producto, 1L, 1);
+		abrir(desde).close();
+
+		long version = 2;
+		long limite = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (feedCambiosProductos.suscriptoresActivos() > 0 && System.nanoTime() < limite) {
+			publicar(producto, version++, 1);
+			Thread.sleep(20);
+		}
+		assertEquals(0, feedCambiosProductos.suscriptoresActivos());
+	}
+
+	private void publicar(Producto producto, Long version, int stockActual) {
+		producto.setVersion(version);
+		producto.setStockActual(stockActual);
+		feedCambiosProductos.alModificarProducto(new ProductoModificadoEvent(idProducto, producto));
+	}
+
+	private Stream<String> abrir(long desde) throws Exception {
+		HttpRequest peticion = HttpRequest.newBuilder(
+						URI.create("http://localhost:" + puerto + "/api/gestion-productos/productos/cambios"))
+				.header("Last-Event-ID", Long.toString(desde))
+				.GET().build();
+		return cliente.send(peticion, HttpResponse.BodyHandlers.ofLines()).body();
+	}
+
+	private static String siguiente(Iterator<String> lineas, String prefijo) {
+		while (lineas.hasNext()) {
+			String linea = lineas.next();
+			if (linea.startsWith(prefijo)) {
+				return linea;
+			}
+		}
+		throw new AssertionError("El feed terminó sin una línea " + prefijo);
+	}
+}
@@ -0,0 +1,132 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.ResultadoImportacion;
+import com.banquito.gestionproductos.dto.ResultadoImportacion.ErrorImportacion;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ImportacionProductoServiceTest {
+
+	@Autowired
+	private ImportacionProductoService importacionProductoService;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private FeedCambiosProductos feedCambiosProductos;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	private Integer idCategoria;
+
+	@BeforeEach
+	void prepararCategoria() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto categoria = categoriaProductoService.crearCategoria(new CategoriaProducto("Papelería", null));
+		idCategoria = categoria.getIdCategoria();
+		productoRepository.save(new Producto("Cuaderno", null, new BigDecimal("2.50"), 10, "Activo", categoria));
+	}
+
+	@Test
+	void csvReportaDuplicadosYFilasInvalidasSinDetenerse() throws Exception {
+		ResultadoImportacion resultado = importacionProductoService.importarCsv(entrada(
+				"nombreProducto,precioVenta,stockActual,idCategoria\n" +
+				"Lápiz,0.50,100," + idCategoria + "\n" +
+				"Lápiz,0.60,50," + idCategoria + "\n" +
+				"Borrador,abc,10," + idCategoria + "\n" +
+				"Regla,1.00,10,999999\n" +
+				"Cuaderno,3.00,5," + idCategoria + "\n" +
+				"\"Tijeras, punta roma\",1.75,20," + idCategoria + "\n"));
+
+		assertEquals(6, resultado.filasLeidas());
+		assertEquals(2, resultado.filasInsertadas());
+		assertEquals(4, resultado.filasConError());
+		assertEquals(List.of(2L, 3L, 4L, 5L), resultado.errores().stream().map(ErrorImportacion::fila).sorted().toList());
+		assertTrue(productoRepository.existsByNombreProducto("Tijeras, punta roma"));
+		assertEquals(1, productoRepository.findByNombreProductoContaining("Lápiz").size());
+	}
+
+	@Test
+	void losProductosImportadosLleganAlFeedDeCambios() throws Exception {
+		long desde = feedCambiosProductos.ultimoId();
+		importacionProductoService.importarCsv(entrada(
+				"nombreProducto,precioVenta,stockActual,idCategoria\n" +
+				"Grapadora,4.00,3," + idCategoria + "\n" +
+				"Clips,0.80,40," + idCategoria + "\n"));
+
+		// El evento lleva la versión inicial de la fila; sin ella el feed no podría ordenar los cambios siguientes
+		assertEquals(desde + 2, feedCambiosProductos.ultimoId());
+	}
+
+	@Test
+	void jsonReportaElementosQueNoSonObjetos() throws Exception {
+		ResultadoImportacion resultado = importacionProductoService.importarJson(entrada("[" +
+				producto("Marcador") + ", 5, [1, 2], " + producto("Marcador") + ", " + producto("Resaltador") + "]"));
+
+		assertEquals(5, resultado.filasLeidas());
+		assertEquals(2, resultado.filasInsertadas());
+		assertEquals(List.of(2L, 3L, 4L), resultado.errores().stream().map(ErrorImportacion::fila).toList());
+	}
+
+	@Test
+	void jsonMalFormadoImportaLoLeidoYReportaElError() throws Exception {
+		ResultadoImportacion resultado = importacionProductoService.importarJson(entrada("[" +
+				producto("Compás") + ", {\"nombreProducto\": "));
+
+		assertEquals(1, resultado.filasInsertadas());
+		assertEquals(1, resultado.filasConError());
+		assertTrue(resultado.errores().get(0).mensaje().startsWith("JSON mal formado"));
+	}
+
+	@Test
+	void unaFilaRechazadaPorLaBaseNoInvalidaElBloque() throws Exception {
+		// El registro en memoria todavía ve la categoría: el INSERT de sus filas falla por la clave foránea
+		Integer idBorrada = categoriaProductoService.crearCategoria(new CategoriaProducto("Temporal", null)).getIdCategoria();
+		categoriaProductoRepository.deleteById(idBorrada);
+
+		ResultadoImportacion resultado = importacionProductoService.importarCsv(entrada(
+				"nombreProducto,precioVenta,stockActual,idCategoria\n" +
+				"Grapadora,4.00,5," + idCategoria + "\n" +
+				"Perforadora,6.00,5," + idBorrada + "\n" +
+				"Clips,0.80,200," + idCategoria + "\n"));
+
+		assertEquals(2, resultado.filasInsertadas());
+		assertEquals(1, resultado.filasConError());
+		assertEquals(2L, resultado.errores().get(0).fila());
+		assertTrue(productoRepository.existsByNombreProducto("Clips"));
+	}
+
+	private String producto(String nombre) {
+		return "{\"nombreProducto\": \"" + nombre + "\", \"precioVenta\": 1.20, \"stockActual\": 10, " +
+				"\"categoria\": {\"idCategoria\": " + idCategoria + "}}";
+	}
+
+	private InputStream entrada(String contenido) {
+		return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+	}
+}
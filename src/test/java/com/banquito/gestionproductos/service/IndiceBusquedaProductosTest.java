@@ -0,0 +1,73 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IndiceBusquedaProductosTest {
+
+	@Autowired
+	private IndiceBusquedaProductos indiceBusquedaProductos;
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	private Producto producto;
+
+	@BeforeEach
+	void prepararProducto() {
+		CategoriaProducto categoria = categoriaProductoService.crearCategoria(
+				new CategoriaProducto("Camping " + System.nanoTime(), null));
+		producto = productoService.crearProducto(
+				new Producto("Linterna " + System.nanoTime(), null, new BigDecimal("8.00"), 10, "Activo", categoria));
+	}
+
+	@Test
+	void unCambioQueLlegaTardeNoPisaUnaVersionPosterior() {
+		publicar("Farol recargable", 5L);
+		// El listener de la transacción anterior corre después
+		publicar("Vela aromática", 4L);
+
+		assertEquals(List.of(producto.getIdProducto()), indiceBusquedaProductos.buscar("farol recargable", 5));
+		assertEquals(List.of(), indiceBusquedaProductos.buscar("vela aromática", 5));
+	}
+
+	@Test
+	void unCambioQueLlegaDespuesDeEliminarNoVuelveAIndexar() {
+		indiceBusquedaProductos.alModificarProducto(new ProductoModificadoEvent(producto.getIdProducto(), null));
+		publicar("Hornillo portátil", 7L);
+
+		assertEquals(List.of(), indiceBusquedaProductos.buscar("hornillo portátil", 5));
+	}
+
+	@Test
+	void unCambioQueLlegaTardeSeDescartaAunqueSeDepureLaEliminacion() {
+		productoService.eliminarProducto(producto.getIdProducto());
+		indiceBusquedaProductos.depurarEliminados(Duration.ZERO);
+		publicar("Carpa iglú", 3L);
+
+		assertEquals(List.of(), indiceBusquedaProductos.buscar("carpa iglú", 5));
+	}
+
+	private void publicar(String nombre, Long version) {
+		producto.setNombreProducto(nombre);
+		producto.setVersion(version);
+		indiceBusquedaProductos.alModificarProducto(new ProductoModificadoEvent(producto.getIdProducto(), producto));
+	}
+}
@@ -0,0 +1,175 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.LineaMovimientoStock;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.MovimientoStockRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "productos.stock.compactacion-ms=3600000")
+@ActiveProfiles("test")
+class LibroMovimientosStockTest {
+
+	private static final int STOCK_INICIAL = 100;
+
+	@Autowired
+	private LibroMovimientosStock libroMovimientosStock;
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private MovimientoStockRepository movimientoStockRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private Integer idProducto;
+
+	@BeforeEach
+	void prepararProducto() {
+		libroMovimientosStock.compactar();
+		movimientoStockRepository.deleteAll();
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto categoria = categoriaProductoRepository.save(new CategoriaProducto("Snacks", null));
+		idProducto = productoRepository.save(new Producto("Papas 50g", null, new BigDecimal("0.75"), STOCK_INICIAL, "Activo", categoria))
+				.getIdProducto();
+	}
+
+	@Test
+	void registrosConcurrentesNoSobrevendenYSeConsolidan() throws Exception {
+		AtomicInteger exitosas = new AtomicInteger();
+		ExecutorService ejecutor = Executors.newFixedThreadPool(16);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < 160; i++) {
+			tareas.add(ejecutor.submit(() -> {
+				try {
+					libroMovimientosStock.registrar(idProducto, -1);
+					exitosas.incrementAndGet();
+				} catch (RuntimeException e) {
+					// Stock insuficiente
+				}
+			}));
+		}
+		for (Future<?> tarea : tareas) {
+			tarea.get();
+		}
+		ejecutor.shutdown();
+
+		assertEquals(STOCK_INICIAL, exitosas.get());
+		assertEquals(STOCK_INICIAL, productoRepository.findById(idProducto).get().getStockActual());
+		assertEquals(0, libroMovimientosStock.obtenerStock(idProducto).stockActual());
+
+		libroMovimientosStock.compactar();
+
+		Producto producto = productoRepository.findById(idProducto).get();
+		assertEquals(0, producto.getStockActual());
+		assertEquals("Agotado", producto.getEstadoProducto());
+		assertEquals(0, libroMovimientosStock.obtenerStock(idProducto).stockActual());
+	}
+
+	@Test
+	void reconstruyeElStockEnUnInstantePasado() throws Exception {
+		libroMovimientosStock.registrar(idProducto, -30);
+		Thread.sleep(20);
+		LocalDateTime corte = LocalDateTime.now();
+		Thread.sleep(20);
+		libroMovimientosStock.registrar(idProducto, 50);
+		libroMovimientosStock.compactar();
+		libroMovimientosStock.registrar(idProducto, -5);
+
+		assertEquals(115, libroMovimientosStock.obtenerStock(idProducto).stockActual());
+		assertEquals(70, libroMovimientosStock.obtenerStockEn(idProducto, corte).stockActual());
+	}
+
+	@Test
+	void reconstruyeDesdeElAltaYRechazaFechasAnteriores() throws Exception {
+		LocalDateTime antesDelAlta = LocalDateTime.now();
+		Thread.sleep(20);
+		CategoriaProducto categoria = categoriaProductoService.crearCategoria(new CategoriaProducto("Frutos secos", null));
+		Integer idNuevo = productoService.crearProducto(new Producto("Maní 50g", null, new BigDecimal("0.60"), 40, "Activo", categoria))
+				.getIdProducto();
+		Thread.sleep(20);
+		LocalDateTime corte = LocalDateTime.now();
+		Thread.sleep(20);
+		productoService.disminuirStock(idNuevo, 15);
+
+		assertEquals(40, libroMovimientosStock.obtenerStockEn(idNuevo, corte).stockActual());
+		assertThrows(RuntimeException.class, () -> libroMovimientosStock.obtenerStockEn(idNuevo, antesDelAlta));
+		// Sin ningún movimiento no hay desde dónde reconstruir
+		assertThrows(RuntimeException.class, () -> libroMovimientosStock.obtenerStockEn(idProducto, corte));
+	}
+
+	@Test
+	void unaVentaEnElLugarSinConfirmarNoSeVuelveAVenderEnElLibro() {
+		transactionTemplate.executeWithoutResult(estado -> {
+			productoService.disminuirStock(idProducto, 95);
+			// El libro confirma en su propia transacción y solo ve el stock consolidado de 100
+			assertThrows(RuntimeException.class, () -> libroMovimientosStock.registrar(idProducto, -6));
+			libroMovimientosStock.registrar(idProducto, -5);
+		});
+
+		libroMovimientosStock.compactar();
+		assertEquals(0, productoRepository.findById(idProducto).get().getStockActual());
+	}
+
+	@Test
+	void loVendidoEnElLibroNoSeVuelveAVenderEnElLugar() {
+		libroMovimientosStock.registrar(idProducto, -95);
+
+		assertThrows(RuntimeException.class, () -> productoService.disminuirStock(idProducto, 6));
+		assertThrows(RuntimeException.class,
+				() -> productoService.disminuirStockLote(List.of(new LineaMovimientoStock(idProducto, 6))));
+		productoService.disminuirStock(idProducto, 5);
+
+		libroMovimientosStock.compactar();
+		assertEquals(0, productoRepository.findById(idProducto).get().getStockActual());
+	}
+
+	@Test
+	void unaCompactacionQueDejariaStockNegativoQuedaPendiente() {
+		libroMovimientosStock.registrar(idProducto, -60);
+		Producto producto = productoRepository.findById(idProducto).get();
+		producto.setStockActual(10);
+		productoRepository.save(producto);
+
+		libroMovimientosStock.compactar();
+		assertEquals(10, productoRepository.findById(idProducto).get().getStockActual());
+		assertEquals(-50, libroMovimientosStock.obtenerStock(idProducto).stockActual());
+
+		libroMovimientosStock.registrar(idProducto, 60);
+		libroMovimientosStock.compactar();
+		assertEquals(10, productoRepository.findById(idProducto).get().getStockActual());
+		assertEquals(10, libroMovimientosStock.obtenerStock(idProducto).stockActual());
+	}
+}
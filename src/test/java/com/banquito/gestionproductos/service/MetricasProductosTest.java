@@ -0,0 +1,80 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MetricasProductosTest {
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Integer idProducto;
+
+	@BeforeEach
+	void prepararProducto() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto categoria = categoriaProductoRepository.save(new CategoriaProducto("Lácteos", null));
+		idProducto = productoRepository.save(new Producto("Leche 1L", null, new BigDecimal("1.10"), 5, "Activo", categoria))
+				.getIdProducto();
+	}
+
+	@Test
+	void cuentaMovimientosConfirmadosYAgotados() {
+		double salidas = contador("productos.stock.unidades", "salida");
+		double entradas = contador("productos.stock.unidades", "entrada");
+		double agotados = meterRegistry.get("productos.agotados").counter().count();
+
+		productoService.aumentarStock(idProducto, 3, null);
+		productoService.disminuirStock(idProducto, 8);
+		assertThrows(RuntimeException.class, () -> productoService.disminuirStock(idProducto, 1));
+
+		assertEquals(entradas + 3, contador("productos.stock.unidades", "entrada"));
+		assertEquals(salidas + 8, contador("productos.stock.unidades", "salida"));
+		assertEquals(agotados + 1, meterRegistry.get("productos.agotados").counter().count());
+	}
+
+	@Test
+	void registraTiemposDeServicioYFilasDevueltas() {
+		productoService.obtenerTodosLosProductos(null, 10);
+
+		assertNotNull(meterRegistry.get("gestionproductos.servicio")
+				.tag("class", ProductoService.class.getName())
+				.tag("method", "obtenerTodosLosProductos")
+				.timer());
+		assertNotNull(meterRegistry.get("spring.data.repository.invocations")
+				.tag("method", "findPaginaDesde")
+				.timer());
+		assertEquals(1.0, meterRegistry.get("productos.consulta.filas").tag("operacion", "todos").summary().totalAmount(), 0.0);
+	}
+
+	private double contador(String nombre, String movimiento) {
+		return meterRegistry.get(nombre).tag("movimiento", movimiento).counter().count();
+	}
+}
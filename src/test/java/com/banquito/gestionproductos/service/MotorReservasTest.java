@@ -0,0 +1,173 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.DisponibilidadProducto;
+import com.banquito.gestionproductos.dto.LineaMovimientoStock;
+import com.banquito.gestionproductos.dto.Reserva;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"productos.reservas.ttl=300ms", "productos.reservas.volcado-ms=3600000"})
+@ActiveProfiles("test")
+class MotorReservasTest {
+
+	private static final int STOCK_INICIAL = 50;
+
+	@Autowired
+	private MotorReservas motorReservas;
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private LibroMovimientosStock libroMovimientosStock;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	private Integer idProducto;
+
+	@BeforeEach
+	void prepararProducto() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto categoria = categoriaProductoService.crearCategoria(new CategoriaProducto("Juguetes", null));
+		Producto producto = new Producto("Pelota", null, new BigDecimal("4.00"), STOCK_INICIAL, "Activo", categoria);
+		idProducto = productoService.crearProducto(producto).getIdProducto();
+	}
+
+	@Test
+	void reservasConcurrentesNoExcedenElStock() throws Exception {
+		AtomicInteger exitosas = new AtomicInteger();
+		ExecutorService ejecutor = Executors.newFixedThreadPool(16);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < 160; i++) {
+			tareas.add(ejecutor.submit(() -> {
+				try {
+					motorReservas.reservar(List.of(new LineaMovimientoStock(idProducto, 1)));
+					exitosas.incrementAndGet();
+				} catch (RuntimeException e) {
+					// Stock insuficiente
+				}
+			}));
+		}
+		for (Future<?> tarea : tareas) {
+			tarea.get();
+		}
+		ejecutor.shutdown();
+
+		assertEquals(STOCK_INICIAL, exitosas.get());
+		assertEquals(0, motorReservas.obtenerDisponibilidad(idProducto).get().disponible());
+		assertEquals(STOCK_INICIAL, productoRepository.findById(idProducto).get().getStockActual());
+	}
+
+	@Test
+	void lasConfirmadasSeVuelcanYLasVencidasSeLiberan() throws Exception {
+		Reserva confirmada = motorReservas.reservar(List.of(new LineaMovimientoStock(idProducto, 20)));
+		motorReservas.reservar(List.of(new LineaMovimientoStock(idProducto, 10)));
+		Reserva liberada = motorReservas.reservar(List.of(new LineaMovimientoStock(idProducto, 5)));
+
+		motorReservas.confirmar(confirmada.idReserva());
+		motorReservas.liberar(liberada.idReserva());
+		assertThrows(RuntimeException.class, () -> motorReservas.confirmar(liberada.idReserva()));
+		assertEquals(20, motorReservas.obtenerDisponibilidad(idProducto).get().disponible());
+
+		motorReservas.volcarConfirmadas();
+		assertEquals(30, productoRepository.findById(idProducto).get().getStockActual());
+
+		Thread.sleep(800);
+		assertEquals(30, motorReservas.obtenerDisponibilidad(idProducto).get().disponible());
+		assertEquals(0, motorReservas.obtenerDisponibilidad(idProducto).get().reservado());
+	}
+
+	@Test
+	void loReservadoYConfirmadoNoSeVendePorOtrosCaminos() {
+		Reserva confirmada = motorReservas.reservar(List.of(new LineaMovimientoStock(idProducto, 25)));
+		motorReservas.reservar(List.of(new LineaMovimientoStock(idProducto, 15)));
+		motorReservas.confirmar(confirmada.idReserva());
+
+		assertThrows(RuntimeException.class, () -> productoService.disminuirStock(idProducto, 11));
+		assertThrows(RuntimeException.class, () -> productoService.registrarMovimientoStock(idProducto, -11));
+		productoService.disminuirStock(idProducto, 10);
+
+		motorReservas.volcarConfirmadas();
+		assertEquals(15, productoRepository.findById(idProducto).get().getStockActual());
+	}
+
+	@Test
+	void unaConfirmacionQueNoCabeQuedaPendienteHastaQueSeRepone() {
+		Reserva confirmada = motorReservas.reservar(List.of(new LineaMovimientoStock(idProducto, 20)));
+		motorReservas.confirmar(confirmada.idReserva());
+		Producto producto = productoRepository.findById(idProducto).get();
+		producto.setStockActual(5);
+		productoRepository.save(producto);
+
+		motorReservas.volcarConfirmadas();
+		DisponibilidadProducto disponibilidad = motorReservas.obtenerDisponibilidad(idProducto).get();
+		assertEquals(5, productoRepository.findById(idProducto).get().getStockActual());
+		assertEquals(20, disponibilidad.confirmadoPendiente());
+		assertTrue(disponibilidad.volcadoRechazado());
+
+		productoService.aumentarStock(idProducto, 30, null);
+		motorReservas.volcarConfirmadas();
+		disponibilidad = motorReservas.obtenerDisponibilidad(idProducto).get();
+		assertEquals(15, productoRepository.findById(idProducto).get().getStockActual());
+		assertEquals(0, disponibilidad.confirmadoPendiente());
+		assertFalse(disponibilidad.volcadoRechazado());
+	}
+
+	@Test
+	void descartaUnCambioConVersionAnteriorALaAplicada() {
+		Producto producto = productoRepository.findById(idProducto).get();
+		// El listener de la transacción que escribió la versión 5 corre antes que el de la versión 4
+		publicar(producto, 5L, 40);
+		publicar(producto, 4L, 10);
+		assertEquals(40, motorReservas.obtenerDisponibilidad(idProducto).get().disponible());
+
+		productoService.eliminarProducto(idProducto);
+		publicar(producto, 6L, 40);
+		assertTrue(motorReservas.obtenerDisponibilidad(idProducto).isEmpty());
+	}
+
+	@Test
+	void alReconciliarDescuentaLasSalidasPendientesDelLibro() {
+		// Pendiente en el libro, o ya consolidada si la compactación corrió entre medio: en ambos casos no está disponible
+		libroMovimientosStock.registrar(idProducto, -8);
+
+		motorReservas.reconciliar();
+		assertEquals(STOCK_INICIAL - 8, motorReservas.obtenerDisponibilidad(idProducto).get().disponible());
+	}
+
+	private void publicar(Producto producto, Long version, int stockActual) {
+		producto.setVersion(version);
+		producto.setStockActual(stockActual);
+		motorReservas.alModificarProducto(new ProductoModificadoEvent(idProducto, producto));
+	}
+}
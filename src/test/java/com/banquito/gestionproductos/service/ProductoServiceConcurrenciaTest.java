@@ -0,0 +1,161 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.LineaMovimientoStock;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductoServiceConcurrenciaTest {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductoServiceConcurrenciaTest.class);
+
+	private static final int STOCK_INICIAL = 1000;
+	private static final int HILOS = 32;
+	private static final int VENTAS_POR_HILO = 50;
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	private Integer idProducto;
+
+	private Integer idOtroProducto;
+
+	@BeforeEach
+	void prepararProducto() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto categoria = categoriaProductoRepository.save(new CategoriaProducto("Bebidas", null));
+		Producto producto = new Producto("Agua 500ml", null, new BigDecimal("1.00"), STOCK_INICIAL, "Activo", categoria);
+		idProducto = productoRepository.save(producto).getIdProducto();
+		Producto otro = new Producto("Jugo 1L", null, new BigDecimal("2.50"), STOCK_INICIAL, "Activo", categoria);
+		idOtroProducto = productoRepository.save(otro).getIdProducto();
+	}
+
+	@Test
+	void disminuirStockConcurrenteNoSobrevende() throws Exception {
+		ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch inicio = new CountDownLatch(1);
+		AtomicInteger ventasExitosas = new AtomicInteger();
+		AtomicInteger ventasRechazadas = new AtomicInteger();
+
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < HILOS; i++) {
+			tareas.add(ejecutor.submit(() -> {
+				inicio.await();
+				for (int j = 0; j < VENTAS_POR_HILO; j++) {
+					try {
+						productoService.disminuirStock(idProducto, 1);
+						ventasExitosas.incrementAndGet();
+					} catch (RuntimeException e) {
+						ventasRechazadas.incrementAndGet();
+					}
+				}
+				return null;
+			}));
+		}
+
+		long tiempoInicio = System.nanoTime();
+		inicio.countDown();
+		for (Future<?> tarea : tareas) {
+			tarea.get();
+		}
+		long nanos = System.nanoTime() - tiempoInicio;
+		ejecutor.shutdown();
+
+		int operaciones = HILOS * VENTAS_POR_HILO;
+		log.info("disminuirStock concurrente: {} operaciones en {} ms ({} ops/s)",
+				operaciones, nanos / 1_000_000, Math.round(operaciones / (nanos / 1e9)));
+
+		Producto producto = productoRepository.findById(idProducto).get();
+		assertEquals(STOCK_INICIAL, ventasExitosas.get());
+		assertEquals(operaciones - STOCK_INICIAL, ventasRechazadas.get());
+		assertEquals(0, producto.getStockActual());
+		assertEquals("Agotado", producto.getEstadoProducto());
+	}
+
+	@Test
+	void aumentarStockConcurrenteNoPierdeActualizaciones() throws Exception {
+		ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < HILOS; i++) {
+			tareas.add(ejecutor.submit(() -> {
+				for (int j = 0; j < VENTAS_POR_HILO; j++) {
+					productoService.aumentarStock(idProducto, 1, null);
+				}
+				return null;
+			}));
+		}
+		for (Future<?> tarea : tareas) {
+			tarea.get();
+		}
+		ejecutor.shutdown();
+
+		Producto producto = productoRepository.findById(idProducto).get();
+		assertEquals(STOCK_INICIAL + HILOS * VENTAS_POR_HILO, producto.getStockActual());
+	}
+
+	@Test
+	void disminuirStockLoteConcurrenteEnOrdenInversoNoSeBloquea() throws Exception {
+		ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < HILOS; i++) {
+			boolean invertido = i % 2 == 0;
+			tareas.add(ejecutor.submit(() -> {
+				for (int j = 0; j < 10; j++) {
+					List<LineaMovimientoStock> lineas = invertido
+							? List.of(new LineaMovimientoStock(idOtroProducto, 1), new LineaMovimientoStock(idProducto, 1))
+							: List.of(new LineaMovimientoStock(idProducto, 1), new LineaMovimientoStock(idOtroProducto, 1));
+					productoService.disminuirStockLote(lineas);
+				}
+				return null;
+			}));
+		}
+		for (Future<?> tarea : tareas) {
+			tarea.get();
+		}
+		ejecutor.shutdown();
+
+		assertEquals(STOCK_INICIAL - HILOS * 10, productoRepository.findById(idProducto).get().getStockActual());
+		assertEquals(STOCK_INICIAL - HILOS * 10, productoRepository.findById(idOtroProducto).get().getStockActual());
+	}
+
+	@Test
+	void disminuirStockLoteEsTodoONada() {
+		List<LineaMovimientoStock> lineas = List.of(
+				new LineaMovimientoStock(idProducto, 10),
+				new LineaMovimientoStock(idOtroProducto, STOCK_INICIAL + 1));
+
+		assertThrows(RuntimeException.class, () -> productoService.disminuirStockLote(lineas));
+		assertEquals(STOCK_INICIAL, productoRepository.findById(idProducto).get().getStockActual());
+		assertEquals(STOCK_INICIAL, productoRepository.findById(idOtroProducto).get().getStockActual());
+	}
+}
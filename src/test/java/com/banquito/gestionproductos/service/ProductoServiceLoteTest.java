@@ -0,0 +1,73 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.LoteProductos;
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductoServiceLoteTest {
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	private final List<Integer> ids = new ArrayList<>();
+
+	@BeforeEach
+	void prepararProductos() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+		ids.clear();
+
+		CategoriaProducto categoria = categoriaProductoService.crearCategoria(new CategoriaProducto("Ferretería", null));
+		for (int i = 0; i < 3; i++) {
+			Producto producto = new Producto("Tornillo " + i, null, new BigDecimal("0.10"), 100, "Activo", categoria);
+			ids.add(productoService.crearProducto(producto).getIdProducto());
+		}
+	}
+
+	@Test
+	void devuelveLosProductosEnElOrdenPedidoYLosFaltantes() {
+		// Uno ya en caché y el resto desde la base
+		productoService.obtenerProductoPorId(ids.get(1));
+		Integer inexistente = ids.get(2) + 1000;
+
+		LoteProductos lote = productoService.obtenerProductosPorIds(List.of(ids.get(2), inexistente, ids.get(0), ids.get(1), ids.get(2)));
+
+		assertEquals(List.of(ids.get(2), ids.get(0), ids.get(1)),
+					 lote.productos().stream().map(ProductoResumen::idProducto).toList());
+		assertEquals("Tornillo 1", lote.productos().get(2).nombreProducto());
+		assertEquals(List.of(inexistente), lote.idsNoEncontrados());
+	}
+
+	@Test
+	void rechazaLotesDeMasDeCienIds() {
+		List<Integer> demasiados = IntStream.rangeClosed(1, 101).boxed().toList();
+		assertThrows(RuntimeException.class, () -> productoService.obtenerProductosPorIds(demasiados));
+	}
+}
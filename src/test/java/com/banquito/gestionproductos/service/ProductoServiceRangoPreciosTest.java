@@ -0,0 +1,144 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.PaginaCursor;
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductoServiceRangoPreciosTest {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductoServiceRangoPreciosTest.class);
+
+	// SQL que Hibernate genera para las consultas de rango de precios, sin los filtros de estado y categoría
+	private static final String SELECT = "SELECT p1_0.id_producto, p1_0.nombre_producto, p1_0.precio_venta, " +
+			"cp1_0.nombre_categoria FROM productos p1_0 LEFT JOIN categorias_producto cp1_0 " +
+			"ON cp1_0.id_categoria = p1_0.id_categoria WHERE p1_0.precio_venta BETWEEN ? AND ? " +
+			"AND (p1_0.precio_venta, p1_0.id_producto) > (?, ?) ";
+	private static final String ORDEN = "p1_0.precio_venta, p1_0.id_producto FETCH FIRST ? ROWS ONLY";
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Integer idBebidas;
+	private final List<Integer> ids = new ArrayList<>();
+
+	@BeforeEach
+	void prepararProductos() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto bebidas = categoriaProductoService.crearCategoria(new CategoriaProducto("Bebidas", null));
+		CategoriaProducto snacks = categoriaProductoService.crearCategoria(new CategoriaProducto("Snacks", null));
+		idBebidas = bebidas.getIdCategoria();
+		ids.add(crear("Agua", "1.00", "Activo", bebidas));
+		ids.add(crear("Jugo", "2.50", "Inactivo", bebidas));
+		ids.add(crear("Papas", "1.50", "Activo", snacks));
+		ids.add(crear("Gaseosa", "9.00", "Activo", bebidas));
+		ids.add(crear("Té", "2.00", "Activo", bebidas));
+	}
+
+	@Test
+	void cadaCombinacionDeFiltrosDevuelveSoloSusProductos() {
+		// Ordenados por precio: Agua 1.00, Papas 1.50, Té 2.00, Jugo 2.50
+		assertEquals(List.of(ids.get(0), ids.get(2), ids.get(4), ids.get(1)), buscar(null, null));
+		assertEquals(List.of(ids.get(0), ids.get(2), ids.get(4)), buscar("Activo", null));
+		assertEquals(List.of(ids.get(0), ids.get(4), ids.get(1)), buscar(null, idBebidas));
+		assertEquals(List.of(ids.get(0), ids.get(4)), buscar("Activo", idBebidas));
+	}
+
+	@Test
+	void elCursorPorPrecioEId() {
+		CategoriaProducto snacks = categoriaProductoRepository.findAll().stream()
+				.filter(c -> c.getNombreCategoria().equals("Snacks")).findFirst().get();
+		// Dos productos con el mismo precio que Té: el id desempata
+		Integer soda = crear("Soda", "2.00", "Activo", snacks);
+		Integer mani = crear("Maní", "2.00", "Activo", snacks);
+
+		List<Integer> recorridos = new ArrayList<>();
+		BigDecimal cursorPrecio = null;
+		Integer cursor = null;
+		do {
+			PaginaCursor<ProductoResumen> pagina = productoService.obtenerProductosPorRangoPrecios(new BigDecimal("1.00"),
+					new BigDecimal("3.00"), null, null, cursorPrecio, cursor, 2);
+			pagina.contenido().forEach(p -> recorridos.add(p.idProducto()));
+			cursorPrecio = pagina.siguienteCursorPrecio();
+			cursor = pagina.siguienteCursor();
+		} while (cursor != null);
+
+		assertEquals(List.of(ids.get(0), ids.get(2), ids.get(4), soda, mani, ids.get(1)), recorridos);
+		assertThrows(RuntimeException.class, () -> productoService.obtenerProductosPorRangoPrecios(new BigDecimal("1.00"),
+				new BigDecimal("3.00"), null, null, null, ids.get(0), 2));
+	}
+
+	@Test
+	void cadaCombinacionDeFiltrosUsaSuIndice() {
+		BigDecimal minimo = new BigDecimal("1.00");
+		BigDecimal maximo = new BigDecimal("3.00");
+		String planSinFiltros = explicar("ORDER BY ", minimo, maximo, minimo, 0, 21);
+		String planEstado = explicar("AND p1_0.estado_producto = ? ORDER BY p1_0.estado_producto, ",
+				minimo, maximo, minimo, 0, "Activo", 21);
+		String planCategoria = explicar("AND p1_0.id_categoria = ? ORDER BY p1_0.id_categoria, ",
+				minimo, maximo, minimo, 0, idBebidas, 21);
+		String planEstadoCategoria = explicar("AND p1_0.estado_producto = ? AND p1_0.id_categoria = ? " +
+				"ORDER BY p1_0.estado_producto, p1_0.id_categoria, ", minimo, maximo, minimo, 0, "Activo", idBebidas, 21);
+
+		// Productos es la tabla de partida, la categoría se busca por su clave primaria y el índice ya da el
+		// orden de la página: la lectura se corta al completarla, sin ordenar el resto del rango
+		for (String plan : List.of(planSinFiltros, planEstado, planCategoria, planEstadoCategoria)) {
+			assertTrue(plan.contains("FROM \"PUBLIC\".\"PRODUCTOS\""), plan);
+			assertTrue(plan.contains("index sorted"), plan);
+		}
+		assertTrue(planSinFiltros.contains("IDX_PRODUCTOS_PRECIO_VENTA:"), planSinFiltros);
+		assertTrue(planEstado.contains("IDX_PRODUCTOS_ESTADO_PRECIO:"), planEstado);
+		assertTrue(planCategoria.contains("IDX_PRODUCTOS_CATEGORIA_PRECIO:"), planCategoria);
+		assertTrue(planEstadoCategoria.contains("IDX_PRODUCTOS_ESTADO_CATEGORIA_PRECIO:"), planEstadoCategoria);
+	}
+
+	private String explicar(String filtrosYOrden, Object... parametros) {
+		String plan = jdbcTemplate.queryForObject("EXPLAIN " + SELECT + filtrosYOrden + ORDEN, String.class, parametros);
+		log.info("Plan {}:\n{}", filtrosYOrden, plan);
+		return plan;
+	}
+
+	private List<Integer> buscar(String estado, Integer idCategoria) {
+		return productoService.obtenerProductosPorRangoPrecios(new BigDecimal("1.00"), new BigDecimal("3.00"), estado,
+				idCategoria, null, null, 20).contenido().stream().map(ProductoResumen::idProducto).toList();
+	}
+
+	private Integer crear(String nombre, String precio, String estado, CategoriaProducto categoria) {
+		Producto producto = new Producto(nombre, null, new BigDecimal(precio), 10, estado, categoria);
+		return productoService.crearProducto(producto).getIdProducto();
+	}
+}
@@ -0,0 +1,100 @@
+package com.banquito.gestionproductos.service;
+
+import com.banquito.gestionproductos.dto.PaginaCursor;
+import com.banquito.gestionproductos.dto.ProductoResumen;
+import com.banquito.gestionproductos.entity.CategoriaProducto;
+import com.banquito.gestionproductos.entity.Producto;
+import com.banquito.gestionproductos.event.ProductoModificadoEvent;
+import com.banquito.gestionproductos.repository.CategoriaProductoRepository;
+import com.banquito.gestionproductos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SeguimientoStockBajoTest {
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private SeguimientoStockBajo seguimientoStockBajo;
+
+	@Autowired
+	private CategoriaProductoService categoriaProductoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaProductoRepository categoriaProductoRepository;
+
+	private final List<Integer> ids = new ArrayList<>();
+
+	@BeforeEach
+	void prepararProductos() {
+		productoRepository.deleteAll();
+		categoriaProductoRepository.deleteAll();
+
+		CategoriaProducto categoria = categoriaProductoService.crearCategoria(new CategoriaProducto("Ferretería", null));
+		int[] stocks = {3, 1, 3, 0, 20, 1, 4};
+		for (int i = 0; i < stocks.length; i++) {
+			Producto producto = new Producto("Tornillo " + i, null, new BigDecimal("0.10"), stocks[i], "Activo", categoria);
+			ids.add(productoService.crearProducto(producto).getIdProducto());
+		}
+	}
+
+	@Test
+	void paginaEnOrdenDeIdAunqueLosStocksSeanDistintos() {
+		List<Integer> recibidos = new ArrayList<>();
+		// deleteAll no pasa por el servicio: el índice aún tiene los productos de otras pruebas, todos con ids menores
+		Integer cursor = ids.get(0) - 1;
+		PaginaCursor<ProductoResumen> pagina;
+		do {
+			pagina = productoService.obtenerProductosConStockBajo(5, cursor, 2);
+			pagina.contenido().forEach(p -> recibidos.add(p.idProducto()));
+			cursor = pagina.siguienteCursor();
+		} while (pagina.hayMas());
+
+		assertEquals(List.of(ids.get(0), ids.get(1), ids.get(2), ids.get(3), ids.get(5), ids.get(6)), recibidos);
+	}
+
+	@Test
+	void laUltimaPaginaNoAnunciaOtra() {
+		PaginaCursor<ProductoResumen> pagina = productoService.obtenerProductosConStockBajo(2, ids.get(1), 2);
+
+		assertEquals(List.of(ids.get(3), ids.get(5)), pagina.contenido().stream().map(ProductoResumen::idProducto).toList());
+		assertFalse(pagina.hayMas());
+	}
+
+	@Test
+	void descartaUnCambioConVersionAnteriorALaIndexada() {
+		Integer id = ids.get(4);
+		Producto producto = productoRepository.findById(id).get();
+		// El listener de la transacción que escribió la versión 5 corre antes que el de la versión 4
+		publicar(producto, 5L, 2);
+		publicar(producto, 4L, 20);
+		assertTrue(seguimientoStockBajo.idsConStockMenorA(5, id - 1, 1).contains(id));
+
+		productoService.eliminarProducto(id);
+		publicar(producto, 6L, 2);
+		assertFalse(seguimientoStockBajo.idsConStockMenorA(5, id - 1, 1).contains(id));
+	}
+
+	private void publicar(Producto producto, Long version, int stockActual) {
+		producto.setVersion(version);
+		producto.setStockActual(stockActual);
+		seguimientoStockBajo.alModificarProducto(new ProductoModificadoEvent(producto.getIdProducto(), producto));
+	}
+}
@@ -0,0 +1,5 @@
+-- Esquema de la réplica usada en ReplicasLecturaTest (en producción lo trae la replicación)
+create sequence if not exists movimientos_stock_seq start with 1 increment by 50;
+create table if not exists categorias_producto (id_categoria integer generated by default as identity, version bigint default 0 not null, descripcion TEXT, nombre_categoria varchar(255) not null, primary key (id_categoria));
+create table if not exists movimientos_stock (aplicado boolean not null, cantidad integer not null, id_producto integer not null, fecha timestamp(6) not null, id_movimiento bigint not null, primary key (id_movimiento));
+create table if not exists productos (costo_compra numeric(10,2), id_categoria integer not null, id_producto integer generated by default as identity, precio_venta numeric(10,2) not null, stock_actual integer not null, version bigint default 0 not null, estado_producto varchar(20) not null, descripcion TEXT, nombre_producto varchar(255) not null, primary key (id_producto));